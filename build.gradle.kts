@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    application
 }
 
 group = "com.back"
@@ -9,11 +10,25 @@ repositories {
     mavenCentral()
 }
 
+// JMH 벤치마크 (src/jmh/java), 실행: gradle jmh [-Pjmh.include=정규식]
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     compileOnly("org.projectlombok:lombok:1.18.42")
     annotationProcessor("org.projectlombok:lombok:1.18.42")
 
     runtimeOnly("com.mysql:mysql-connector-j:9.5.0")
+    // embedded 모드 (SimpleDb.embedded, 외부 DB 없는 테스트 / 벤치마크)
+    runtimeOnly("com.h2database:h2:2.3.232")
 
     testImplementation("org.assertj:assertj-core:3.27.6")
 
@@ -24,8 +39,36 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+application {
+    // 부하 테스트 하네스, gradle run --args="--threads 32 --duration 30"
+    mainClass.set("com.back.Main")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    // gradle test -PtestDb=h2 : MySQL 없이 embedded H2 로 실행
+    systemProperty("simpleDb.test.db", providers.gradleProperty("testDb").getOrElse("mysql"))
+}
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "JMH 벤치마크 실행 (-prof gc 포함), 결과는 build/reports/jmh"
+    dependsOn(tasks.named("jmhClasses"))
+
+    val reportDir = layout.buildDirectory.dir("reports/jmh")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    doFirst { reportDir.get().asFile.mkdirs() }
+    args(
+        providers.gradleProperty("jmh.include").getOrElse("com.back.simpleDb.*Benchmark"),
+        "-prof", "gc",
+        "-rf", "json",
+        "-rff", reportDir.get().file("results.json").asFile.path,
+        "-o", reportDir.get().file("results.txt").asFile.path
+    )
+}
@@ -0,0 +1,123 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDateTime;
+
+/**
+ *  FakeJdbc 역할
+ *  1. 벤치마크용 메모리 JDBC (MySQL 없이 Sql 의 row 처리 경로만 측정)
+ *  2. 어떤 SQL 을 prepare 하든 같은 table 을 ResultSet 으로 돌려줌
+ *  3. 필요한 메서드만 구현, 나머지는 SQLFeatureNotSupportedException
+ */
+final class FakeJdbc {
+
+    /**
+     * 컬럼 라벨 + row 값 (MySQL Connector/J 가 getObject 로 돌려주는 타입 그대로)
+     */
+    record Table(String[] labels, Object[][] rows) {}
+
+    private FakeJdbc() {}
+
+    /**
+     * article 테이블과 같은 모양의 row 를 count 개 생성
+     */
+    static Table articles(int count) {
+        String[] labels = {"id", "title", "body", "createdDate", "modifiedDate", "isBlind"};
+        Object[][] rows = new Object[count][];
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[]{(long) i + 1, "제목" + i, "내용" + i, now.plusSeconds(i), now.plusSeconds(i), i % 2 == 0};
+        }
+        return new Table(labels, rows);
+    }
+
+    static Connection connection(Table table) {
+        return proxy(Connection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "prepareStatement" -> preparedStatement(table);
+            case "getAutoCommit", "isReadOnly" -> method.getName().equals("getAutoCommit");
+            case "isClosed" -> false;
+            case "close", "setAutoCommit", "commit", "rollback", "clearWarnings" -> null;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "FakeConnection";
+            default -> throw new SQLFeatureNotSupportedException(method.getName());
+        });
+    }
+
+    private static PreparedStatement preparedStatement(Table table) {
+        return proxy(PreparedStatement.class, (proxy, method, args) -> switch (method.getName()) {
+            case "executeQuery" -> resultSet(table);
+            case "executeUpdate" -> 1;
+            case "setObject", "setFetchSize", "clearParameters", "clearBatch", "clearWarnings", "close" -> null;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "FakePreparedStatement";
+            default -> throw new SQLFeatureNotSupportedException(method.getName());
+        });
+    }
+
+    private static ResultSet resultSet(Table table) {
+        return proxy(ResultSet.class, new InvocationHandler() {
+            private int row = -1;
+            private boolean wasNull;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "next":
+                        return ++row < table.rows.length;
+                    case "getMetaData":
+                        return metaData(table);
+                    case "wasNull":
+                        return wasNull;
+                    case "close":
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "FakeResultSet";
+                    default:
+                        break;
+                }
+
+                if (!method.getName().startsWith("get") || args == null || !(args[0] instanceof Integer index)) {
+                    throw new SQLFeatureNotSupportedException(method.getName());
+                }
+
+                Object value = table.rows[row][index - 1];
+                wasNull = value == null;
+
+                return switch (method.getName()) {
+                    case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                    case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                    case "getDouble" -> value == null ? 0.0 : ((Number) value).doubleValue();
+                    case "getBoolean" -> value instanceof Boolean b ? b : value != null && ((Number) value).intValue() != 0;
+                    case "getString" -> value == null ? null : value.toString();
+                    case "getObject" -> value;
+                    default -> throw new SQLFeatureNotSupportedException(method.getName());
+                };
+            }
+        });
+    }
+
+    private static ResultSetMetaData metaData(Table table) {
+        return proxy(ResultSetMetaData.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getColumnCount" -> table.labels.length;
+            case "getColumnLabel", "getColumnName" -> table.labels[(Integer) args[0] - 1];
+            default -> throw new SQLFeatureNotSupportedException(method.getName());
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
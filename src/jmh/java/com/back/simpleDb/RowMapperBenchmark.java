@@ -0,0 +1,52 @@
+package com.back.simpleDb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 컬럼 이름 변환 / 값 변환 (row 마다, 컬럼마다 불리는 경로)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmark {
+
+    private String snakeColumn = "created_date";
+    private String camelColumn = "createdDate";
+    private Object intValue = 42;
+    private Object timestampValue = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0));
+
+    @Benchmark
+    public String toFieldNameSnake() {
+        return RowMapper.toFieldName(snakeColumn);
+    }
+
+    @Benchmark
+    public String toFieldNameCamel() {
+        return RowMapper.toFieldName(camelColumn);
+    }
+
+    @Benchmark
+    public Object convertIntToLong() {
+        return RowMapper.convertValue(Long.class, intValue);
+    }
+
+    @Benchmark
+    public Object convertTimestamp() {
+        return RowMapper.convertValue(LocalDateTime.class, timestampValue);
+    }
+}
@@ -0,0 +1,77 @@
+package com.back.simpleDb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * selectRows() / selectRows(Class) 의 row 처리 비용
+ * FakeJdbc 가 메모리의 article row 를 돌려주므로 네트워크 / 서버 시간은 빠져 있음
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectRowsBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int rows;
+
+    private SimpleDb simpleDb;
+    private CompiledSql compiled;
+
+    @Setup
+    public void setUp() {
+        FakeJdbc.Table table = FakeJdbc.articles(rows);
+        simpleDb = new SimpleDb(() -> FakeJdbc.connection(table));
+        simpleDb.setPooled(false);
+        compiled = simpleDb.compile("SELECT * FROM article WHERE id > ?");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> selectRowsAsMap() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article WHERE id > ?", 0)
+                .selectRows();
+    }
+
+    @Benchmark
+    public List<Article> selectRowsAsArticle() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article WHERE id > ?", 0)
+                .selectRows(Article.class);
+    }
+
+    @Benchmark
+    public List<Article> selectRowsAsArticleCompiled() {
+        return compiled.selectRows(Article.class, 0);
+    }
+
+    @Benchmark
+    public List<Long> selectLongs() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article WHERE id > ?", 0)
+                .selectLongs();
+    }
+
+    @Benchmark
+    public long[] selectLongArray() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article WHERE id > ?", 0)
+                .selectLongArray();
+    }
+}
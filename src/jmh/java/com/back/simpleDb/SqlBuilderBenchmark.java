@@ -0,0 +1,75 @@
+package com.back.simpleDb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sql.append / appendIn 으로 쿼리 문자열을 만드는 비용 (실행은 하지 않음)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SqlBuilderBenchmark {
+
+    @Param({"10", "1000"})
+    int inSize;
+
+    private SimpleDb simpleDb;
+    private Object[] ids;
+    private long[] primitiveIds;
+
+    @Setup
+    public void setUp() {
+        simpleDb = new SimpleDb(() -> FakeJdbc.connection(FakeJdbc.articles(0)));
+        ids = new Object[inSize];
+        primitiveIds = new long[inSize];
+        for (int i = 0; i < inSize; i++) {
+            ids[i] = (long) i;
+            primitiveIds[i] = i;
+        }
+        // 임시 테이블로 넘어가지 않도록 (문자열 생성 비용만 비교)
+        simpleDb.setInListTableThreshold(0);
+    }
+
+    @Benchmark
+    public Sql append() {
+        return simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .append("WHERE id = ?", 1)
+                .append("AND title = ?", "제목1")
+                .append("AND isBlind = ?", false)
+                .append("ORDER BY id DESC")
+                .append("LIMIT ?", 10);
+    }
+
+    @Benchmark
+    public Sql appendIn() {
+        return simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .appendIn("WHERE id IN (?)", ids);
+    }
+
+    @Benchmark
+    public Sql appendInLongArray() {
+        return simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .appendIn("WHERE id IN (?)", primitiveIds);
+    }
+}
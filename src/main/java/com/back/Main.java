@@ -1,7 +1,10 @@
 package com.back;
 
+import com.back.simpleDb.LoadHarness;
+
 public class Main {
     public static void main(String[] args) {
-
+        // 부하 테스트 (옵션은 LoadHarness 참고)
+        LoadHarness.main(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package com.back.simpleDb;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *  CompiledSql 역할
+ *  1. 한 번 만든 SQL 문자열 / placeholder 개수 / DB 용 SQL / 참조 테이블을 들고 있다가
+ *  2. 실행할 때는 파라미터만 바꿔서 실행 (append 로 매번 SQL 을 다시 만들지 않음)
+ *  3. selectRows(Class) 의 RowMapper 를 마지막 컬럼 구성 기준으로 캐싱
+ *
+ *  불변 객체라 여러 스레드에서 공유해도 됨 (static final 필드로 두고 재사용)
+ *  CompiledSql ARTICLE_BY_ID = simpleDb.compile("SELECT * FROM article WHERE id = ?");
+ *  Article article = ARTICLE_BY_ID.selectRow(Article.class, 1);
+ */
+public final class CompiledSql {
+
+    private record MapperEntry(Class<?> clazz, String[] labels, RowMapper<?> mapper) {}
+
+    private final SimpleDb simpleDb;
+    private final String sql;
+    private final String nativeSql;
+    private final int placeholderCount;
+    private final Set<String> tables;
+    private volatile MapperEntry mapperEntry;
+
+    CompiledSql(SimpleDb simpleDb, String sql) {
+        if (sql == null || sql.isBlank()) {
+            throw new IllegalStateException("SQL이 비어 있습니다. append(...)로 먼저 쿼리를 구성하세요.");
+        }
+        this.simpleDb = simpleDb;
+        this.sql = sql;
+        this.nativeSql = simpleDb.nativeSql(sql);
+        this.placeholderCount = countPlaceholders(sql);
+        this.tables = QueryCache.tablesOf(sql);
+    }
+
+    /**
+     * 문자열 리터럴 / 백틱 식별자 밖의 ? 개수
+     */
+    static int countPlaceholders(String sql) {
+        int count = 0;
+        char quote = 0;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 파라미터를 바인딩한 실행용 Sql (append 불가)
+     * selectRows(), selectRowStream(), cached() 등 Sql 의 실행 메서드를 그대로 사용
+     */
+    public Sql bind(Object... params) {
+        if (params.length != placeholderCount) {
+            throw new IllegalArgumentException("파라미터 개수가 맞지 않습니다. 필요: %d, 전달: %d"
+                    .formatted(placeholderCount, params.length));
+        }
+        return new Sql(simpleDb, this, params);
+    }
+
+    public <T> List<T> selectRows(Class<T> clazz, Object... params) {
+        return bind(params).selectRows(clazz);
+    }
+
+    public <T> T selectRow(Class<T> clazz, Object... params) {
+        return bind(params).selectRow(clazz);
+    }
+
+    public Long selectLong(Object... params) {
+        return bind(params).selectLong();
+    }
+
+    public long insert(Object... params) {
+        return bind(params).insert();
+    }
+
+    public int update(Object... params) {
+        return bind(params).update();
+    }
+
+    public int delete(Object... params) {
+        return bind(params).delete();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public int getPlaceholderCount() {
+        return placeholderCount;
+    }
+
+    String nativeSql() {
+        return nativeSql;
+    }
+
+    Set<String> tables() {
+        return tables;
+    }
+
+    /**
+     * 직전 실행과 컬럼 구성이 같으면 전역 캐시를 찾지 않고 같은 매퍼 사용
+     */
+    @SuppressWarnings("unchecked")
+    <T> RowMapper<T> mapper(Class<T> clazz, String[] labels) {
+        MapperEntry entry = mapperEntry;
+        if (entry != null && entry.clazz == clazz && Arrays.equals(entry.labels, labels)) {
+            return (RowMapper<T>) entry.mapper;
+        }
+
+        RowMapper<T> mapper = RowMapper.of(clazz, labels);
+        mapperEntry = new MapperEntry(clazz, labels, mapper);
+        return mapper;
+    }
+}
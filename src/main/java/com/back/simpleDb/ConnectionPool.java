@@ -0,0 +1,430 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  ConnectionPool 역할
+ *  1. 물리 커넥션을 min ~ max 개수 안에서 재사용
+ *  2. 빌려간 커넥션의 close()를 가로채서 풀에 반납
+ *  3. idle / maxLifetime 이 지난 커넥션 정리
+ *  4. 물리 커넥션마다 PreparedStatement 캐시 유지
+ *  5. 반납할 때 트랜잭션 / read only / 격리 수준을 처음 상태로 되돌림 (못 되돌리면 버림)
+ */
+class ConnectionPool {
+
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private int totalCount;
+    private boolean closed;
+
+    private final ScheduledExecutorService housekeeper;
+
+    ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+                   long acquireTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                   int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("풀 크기 설정이 올바르지 않습니다: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "simpleDb-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis, 30_000L));
+        housekeeper.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 1. idle 커넥션이 있으면 꺼내서 사용 (수명이 지났으면 버림)
+     * 2. 없고 max 미만이면 새로 생성
+     * 3. 둘 다 안되면 acquireTimeout 까지 반납을 기다림
+     * 물리 커넥션 close 는 느릴 수 있으므로 버릴 커넥션은 모아뒀다가 lock 밖에서 닫음
+     */
+    Connection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        List<PooledEntry> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("커넥션 풀이 종료되었습니다.");
+                }
+
+                PooledEntry entry = idle.pollFirst();
+                if (entry != null) {
+                    if (isExpired(entry, System.currentTimeMillis())) {
+                        totalCount--;
+                        expired.add(entry);
+                        continue;
+                    }
+                    return entry.lease();
+                }
+
+                if (totalCount < maxSize) {
+                    totalCount++;
+                    break;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLTimeoutException("커넥션 획득 시간 초과: " + acquireTimeoutMillis + "ms");
+                }
+                try {
+                    available.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("커넥션 대기 중 인터럽트 되었습니다.", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+            destroyAll(expired);
+        }
+
+        // 생성은 느리므로 lock 밖에서 수행
+        try {
+            return new PooledEntry(factory.create()).lease();
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                totalCount--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        boolean reusable = reset(entry);
+        boolean discard;
+
+        lock.lock();
+        try {
+            discard = !reusable || closed || isExpired(entry, System.currentTimeMillis());
+            if (discard) {
+                totalCount--;
+            } else {
+                entry.lastUsedAt = System.currentTimeMillis();
+                // 최근에 쓴 커넥션을 먼저 재사용 -> 오래 안 쓴 커넥션이 idle 로 정리됨
+                idle.addFirst(entry);
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (discard) {
+            entry.destroy();
+        }
+    }
+
+    /**
+     * 트랜잭션 도중 반납된 커넥션은 rollback 후 autoCommit 을 원래대로 돌려놓는다.
+     * 빌려간 쪽이 read only / 격리 수준을 바꿨으면 만들 때 값으로 되돌린다.
+     * 하나라도 실패하면 false -> 다음 사용자에게 설정이 새지 않도록 커넥션을 버림
+     */
+    private boolean reset(PooledEntry entry) {
+        try {
+            Connection conn = entry.physical;
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (entry.settingsChanged) {
+                // 트랜잭션 밖에서 바꿔야 적용되므로 autoCommit 을 켠 뒤에
+                conn.setReadOnly(entry.baseReadOnly);
+                conn.setTransactionIsolation(entry.baseIsolation);
+                entry.settingsChanged = false;
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledEntry entry, long now) {
+        return maxLifetimeMillis > 0 && now - entry.createdAt >= maxLifetimeMillis;
+    }
+
+    /**
+     * housekeeper 가 주기적으로 호출 (idle / maxLifetime 정리 후 minSize 까지 채움)
+     */
+    void evict() {
+        long now = System.currentTimeMillis();
+        List<PooledEntry> evicted = new ArrayList<>();
+
+        lock.lock();
+        try {
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                boolean idleTooLong = totalCount > minSize && now - entry.lastUsedAt >= idleTimeoutMillis;
+                if (idleTooLong || isExpired(entry, now)) {
+                    it.remove();
+                    totalCount--;
+                    evicted.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroyAll(evicted);
+
+        fillToMin();
+    }
+
+    private void fillToMin() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || totalCount >= minSize) {
+                    return;
+                }
+                totalCount++;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                PooledEntry entry = new PooledEntry(factory.create());
+                boolean poolClosed;
+                lock.lock();
+                try {
+                    poolClosed = closed;
+                    if (poolClosed) {
+                        totalCount--;
+                    } else {
+                        idle.addLast(entry);
+                        available.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (poolClosed) {
+                    entry.destroy();
+                    return;
+                }
+            } catch (SQLException e) {
+                lock.lock();
+                try {
+                    totalCount--;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    void close() {
+        List<PooledEntry> closing;
+        lock.lock();
+        try {
+            closed = true;
+            closing = new ArrayList<>(idle);
+            totalCount -= closing.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        destroyAll(closing);
+        housekeeper.shutdownNow();
+    }
+
+    private static void destroyAll(List<PooledEntry> entries) {
+        for (PooledEntry entry : entries) {
+            entry.destroy();
+        }
+    }
+
+    StatementCacheStats getStatementCacheStats() {
+        return statementCounters.snapshot();
+    }
+
+    int getTotalCount() {
+        lock.lock();
+        try {
+            return totalCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 빌려가서 아직 반납하지 않은 커넥션 수 (생성 중인 것 포함)
+     */
+    int getActiveCount() {
+        lock.lock();
+        try {
+            return totalCount - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignore) {}
+    }
+
+    /**
+     * 물리 커넥션 하나와 그 메타정보
+     */
+    private class PooledEntry {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private final long createdAt;
+        private long lastUsedAt;
+        // 만들 때의 read only / 격리 수준 (반납할 때 되돌릴 값)
+        private final boolean baseReadOnly;
+        private final int baseIsolation;
+        // 빌려간 쪽이 setReadOnly / setTransactionIsolation 을 호출했는지
+        private boolean settingsChanged;
+
+        private PooledEntry(Connection physical) throws SQLException {
+            try {
+                this.baseReadOnly = physical.isReadOnly();
+                this.baseIsolation = physical.getTransactionIsolation();
+            } catch (SQLException e) {
+                closeQuietly(physical);
+                throw e;
+            }
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementCounters)
+                    : null;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        private void destroy() {
+            if (statementCache != null) {
+                statementCache.close();
+            }
+            closeQuietly(physical);
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /**
+     * 빌려준 커넥션 핸들
+     * close() 는 물리적으로 닫지 않고 풀에 반납, 반납 후에는 사용 불가
+     */
+    private class Lease implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean released;
+
+        private Lease(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    break;
+            }
+
+            if (released) {
+                throw new SQLException("이미 풀에 반납된 커넥션입니다.");
+            }
+
+            if (method.getName().equals("setReadOnly") || method.getName().equals("setTransactionIsolation")) {
+                entry.settingsChanged = true;
+            }
+
+            if (entry.statementCache != null && method.getName().equals("prepareStatement")) {
+                // prepareStatement(sql), prepareStatement(sql, autoGeneratedKeys) 만 캐싱
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return entry.statementCache.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return entry.statementCache.prepare((String) args[0], (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
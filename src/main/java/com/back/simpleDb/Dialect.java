@@ -0,0 +1,282 @@
+package com.back.simpleDb;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ *  Dialect 역할
+ *  1. DB 종류별 JDBC URL 생성
+ *  2. SimpleDb 는 MySQL 문법으로 작성된 SQL 을 받으므로, 다른 DB 면 실행 직전에 그 DB 의 문법으로 바꿈 (nativeSql)
+ *  3. 새 물리 커넥션마다 실행할 초기화 SQL (호환 함수 등록 등)
+ */
+public enum Dialect {
+
+    MYSQL {
+        @Override
+        String jdbcUrl(String host, int port, String dbName) {
+            return String.format("jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=Asia/Seoul&useCursorFetch=true&rewriteBatchedStatements=true", host, port, dbName);
+        }
+
+        @Override
+        int defaultPort() {
+            return 3306;
+        }
+
+        /**
+         * 1213: ER_LOCK_DEADLOCK, 1205: ER_LOCK_WAIT_TIMEOUT
+         */
+        @Override
+        boolean isRetryable(SQLException e) {
+            return e.getErrorCode() == 1213 || e.getErrorCode() == 1205 || super.isRetryable(e);
+        }
+    },
+
+    /**
+     * H2 의 MySQL 호환 모드 (embedded / CI 용)
+     * MySQL 에만 있는 문법은 nativeSql / initSql 로 맞춰줌
+     */
+    H2 {
+        private static final Pattern INT_UNSIGNED = Pattern.compile("\\bINT(?:EGER)?\\s+UNSIGNED\\b", Pattern.CASE_INSENSITIVE);
+        private static final Pattern TRUNCATE = Pattern.compile("^(\\s*TRUNCATE)\\s+(?!TABLE\\b)", Pattern.CASE_INSENSITIVE);
+
+        @Override
+        String jdbcUrl(String host, int port, String dbName) {
+            return "jdbc:h2:tcp://%s:%d/%s;%s".formatted(host, port, dbName, H2_OPTIONS);
+        }
+
+        @Override
+        int defaultPort() {
+            return 9092;
+        }
+
+        /**
+         * INT UNSIGNED -> BIGINT (Connector/J 는 INT UNSIGNED 를 Long 으로 돌려줌)
+         * TRUNCATE t -> TRUNCATE TABLE t
+         * ? '%' / 'a' 'b' (이어 쓴 문자열 리터럴) -> ? || '%'
+         * 문자열 리터럴 / 인용된 식별자 / 주석 안은 바꾸지 않음
+         */
+        @Override
+        String nativeSql(String sql) {
+            String converted = replaceOutsideQuotes(sql, INT_UNSIGNED, "BIGINT");
+            converted = TRUNCATE.matcher(converted).replaceFirst("$1 TABLE ");
+            return concatAdjacentLiterals(converted);
+        }
+
+        @Override
+        String maxAllowedPacketSql() {
+            return null;
+        }
+
+        /**
+         * 40001: DEADLOCK_1, 50200: LOCK_TIMEOUT_1
+         */
+        @Override
+        boolean isRetryable(SQLException e) {
+            return e.getErrorCode() == 40001 || e.getErrorCode() == 50200 || super.isRetryable(e);
+        }
+
+        @Override
+        String createTempTableSql(String name, String columnType) {
+            return "CREATE LOCAL TEMPORARY TABLE %s (v %s NOT NULL)".formatted(name, columnType);
+        }
+
+        @Override
+        String dropTempTableSql(String name) {
+            return "DROP TABLE IF EXISTS " + name;
+        }
+
+        @Override
+        List<String> initSql() {
+            return List.of(
+                    "CREATE ALIAS IF NOT EXISTS FIELD FOR 'com.back.simpleDb.H2Functions.field'",
+                    "CREATE ALIAS IF NOT EXISTS SLEEP FOR 'com.back.simpleDb.H2Functions.sleep'");
+        }
+    };
+
+    static final String H2_OPTIONS = "MODE=MySQL;DATABASE_TO_LOWER=FALSE;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    abstract String jdbcUrl(String host, int port, String dbName);
+
+    abstract int defaultPort();
+
+    /**
+     * MySQL 문법 SQL -> 이 DB 에서 실행할 SQL
+     */
+    String nativeSql(String sql) {
+        return sql;
+    }
+
+    /**
+     * 서버의 max_allowed_packet 을 읽는 SQL, 없으면 null (기본값 사용)
+     */
+    String maxAllowedPacketSql() {
+        return "SELECT @@max_allowed_packet";
+    }
+
+    List<String> initSql() {
+        return List.of();
+    }
+
+    /**
+     * 테이블 / 컬럼 이름 인용 (schema.table 은 각각), 이름 안의 ` 는 `` 로
+     * H2 도 MySQL 호환 모드라 백틱을 그대로 씀
+     */
+    String quoteIdentifier(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("테이블 / 컬럼 이름이 비어 있습니다.");
+        }
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (String part : name.split("\\.", -1)) {
+            if (part.isBlank()) {
+                throw new IllegalArgumentException("테이블 / 컬럼 이름이 올바르지 않습니다: " + name);
+            }
+            if (!sb.isEmpty()) {
+                sb.append('.');
+            }
+            sb.append('`').append(part.replace("`", "``")).append('`');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 현재 세션에서만 보이는 임시 테이블 (appendIn 의 큰 IN 목록용)
+     */
+    String createTempTableSql(String name, String columnType) {
+        return "CREATE TEMPORARY TABLE %s (v %s NOT NULL)".formatted(name, columnType);
+    }
+
+    String dropTempTableSql(String name) {
+        return "DROP TEMPORARY TABLE IF EXISTS " + name;
+    }
+
+    /**
+     * 트랜잭션 전체를 다시 실행하면 성공할 수 있는 에러 (deadlock, lock wait timeout, serialization failure)
+     */
+    boolean isRetryable(SQLException e) {
+        return e instanceof SQLTransactionRollbackException || "40001".equals(e.getSQLState());
+    }
+
+    static Dialect of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * 문자열 리터럴 / 인용된 식별자 / 주석 밖의 SQL 에만 pattern 치환
+     */
+    static String replaceOutsideQuotes(String sql, Pattern pattern, String replacement) {
+        StringBuilder sb = null;
+        int codeStart = 0;
+        int i = 0;
+
+        while (i < sql.length()) {
+            int end = quotedOrCommentEnd(sql, i);
+            if (end == i) {
+                i++;
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(sql.length());
+            }
+            sb.append(pattern.matcher(sql.substring(codeStart, i)).replaceAll(replacement));
+            sb.append(sql, i, end);
+            codeStart = end;
+            i = end;
+        }
+
+        if (sb == null) {
+            // 리터럴 / 주석이 없으면 통째로
+            return pattern.matcher(sql).replaceAll(replacement);
+        }
+        return sb.append(pattern.matcher(sql.substring(codeStart)).replaceAll(replacement)).toString();
+    }
+
+    /**
+     * 공백(주석 포함)만 사이에 둔 문자열 리터럴 / ? 와 문자열 리터럴 사이에 || 를 넣음
+     * 문자열 / 인용된 식별자 / 주석 안은 건드리지 않도록 한 글자씩 읽음
+     */
+    static String concatAdjacentLiterals(String sql) {
+        if (sql.indexOf('\'') < 0) {
+            return sql;
+        }
+
+        StringBuilder sb = new StringBuilder(sql.length() + 8);
+        boolean afterOperand = false; // 직전 토큰이 문자열 리터럴 또는 ? 였는지
+        int i = 0;
+
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            int end = quotedOrCommentEnd(sql, i);
+
+            if (c == '\'') {
+                if (afterOperand) {
+                    // 직전 토큰 뒤의 공백은 이미 sb 에 들어가 있음
+                    sb.append("|| ");
+                }
+                sb.append(sql, i, end);
+                i = end;
+                afterOperand = true;
+            } else if (end > i) {
+                // 주석은 공백처럼 취급, "..." / `...` 는 피연산자가 아님
+                if (c == '"' || c == '`') {
+                    afterOperand = false;
+                }
+                sb.append(sql, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                sb.append(c);
+                i++;
+            } else {
+                sb.append(c);
+                afterOperand = c == '?';
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * i 에서 시작하는 문자열 리터럴('...', "...") / 인용된 식별자(`...`) / 주석(#, --, 블록 주석)이 끝난 다음 위치
+     * 해당하지 않으면 i 그대로
+     */
+    static int quotedOrCommentEnd(String sql, int i) {
+        char c = sql.charAt(i);
+        if (c == '\'' || c == '"' || c == '`') {
+            return quotedEnd(sql, i, c);
+        }
+        if (c == '#' || (c == '-' && sql.startsWith("--", i)
+                && (i + 2 == sql.length() || Character.isWhitespace(sql.charAt(i + 2))))) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? sql.length() : end;
+        }
+        if (c == '/' && sql.startsWith("/*", i)) {
+            int end = sql.indexOf("*/", i + 2);
+            return end < 0 ? sql.length() : end + 2;
+        }
+        return i;
+    }
+
+    /**
+     * i 의 quote 로 시작하는 구간이 끝난 다음 위치 (quote 두 번은 이스케이프, 문자열 안의 \ 도 이스케이프)
+     */
+    private static int quotedEnd(String sql, int i, char quote) {
+        int j = i + 1;
+        while (j < sql.length()) {
+            char c = sql.charAt(j);
+            if (c == '\\' && quote != '`') {
+                j += 2;
+            } else if (c == quote) {
+                if (j + 1 < sql.length() && sql.charAt(j + 1) == quote) {
+                    j += 2;
+                } else {
+                    return j + 1;
+                }
+            } else {
+                j++;
+            }
+        }
+        return sql.length();
+    }
+}
@@ -0,0 +1,32 @@
+package com.back.simpleDb;
+
+/**
+ * H2 에 없는 MySQL 함수 (Dialect.H2 의 initSql 에서 CREATE ALIAS 로 등록)
+ */
+public final class H2Functions {
+
+    private H2Functions() {}
+
+    /**
+     * FIELD(value, v1, v2, ...) : value 와 같은 첫 번째 위치 (1부터), 없으면 0
+     */
+    public static int field(String value, String... list) {
+        if (value == null) {
+            return 0;
+        }
+        for (int i = 0; i < list.length; i++) {
+            if (value.equals(list[i])) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * SLEEP(seconds) : 0 반환
+     */
+    public static int sleep(double seconds) throws InterruptedException {
+        Thread.sleep((long) (seconds * 1000));
+        return 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *  InListTable 역할
+ *  1. appendIn 의 값이 많으면 IN (?, ?, ...) 대신 임시 테이블에 넣고 IN (SELECT v FROM 임시테이블) 로 조회
+ *  2. 쿼리를 실행하는 커넥션에서 만들고(create) 실행이 끝나면 지움(drop)
+ *  3. 임시 테이블은 커넥션(세션)마다 따로라서 다른 스레드와 이름이 겹쳐도 상관없음
+ *  4. create / drop 은 DDL 이라 열린 트랜잭션을 커밋할 수 있으므로 트랜잭션 밖에서만 사용 (Sql.appendIn)
+ */
+record InListTable(String name, String columnType, Object[] values) {
+
+    /**
+     * 임시 테이블 컬럼 타입, 정수 / 문자열만 지원 (그 외엔 null -> placeholder 로 처리)
+     */
+    static String columnTypeOf(Object[] values) {
+        boolean integral = true;
+        boolean text = true;
+        int maxLength = 1;
+
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            integral &= value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+            text &= value instanceof CharSequence;
+            if (value instanceof CharSequence cs) {
+                maxLength = Math.max(maxLength, cs.length());
+            }
+        }
+
+        if (integral) {
+            return "BIGINT";
+        }
+        if (text) {
+            return "VARCHAR(" + maxLength + ")";
+        }
+        return null;
+    }
+
+    void create(Connection conn, Dialect dialect, int flushSize) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.dropTempTableSql(name));
+            stmt.execute(dialect.createTempTableSql(name, columnType));
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO " + name + " (v) VALUES (?)")) {
+            int pending = 0;
+            for (Object value : values) {
+                // IN 에서 NULL 은 어떤 값과도 같지 않으므로 넣지 않음
+                if (value == null) {
+                    continue;
+                }
+                pstmt.setObject(1, value);
+                pstmt.addBatch();
+
+                if (++pending == flushSize) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    void drop(Connection conn, Dialect dialect) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.dropTempTableSql(name));
+        } catch (SQLException ignore) {
+            // 커넥션이 닫히면 임시 테이블도 사라짐
+        }
+    }
+}
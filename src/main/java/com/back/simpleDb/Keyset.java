@@ -0,0 +1,166 @@
+package com.back.simpleDb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ *  Keyset 역할
+ *  1. LIMIT / OFFSET 대신 마지막으로 읽은 키 다음부터 읽는 페이지 쿼리를 만듦
+ *     SELECT * FROM (원래 쿼리) simpledb_keyset WHERE `id` > ? ORDER BY `id` LIMIT ?
+ *  2. 마지막 키를 continuation token 문자열로 인코딩 / 디코딩
+ *  키 컬럼은 유일해야 하고 원래 쿼리의 SELECT 목록에 있어야 함 ("id" 또는 "id DESC")
+ *  원래 쿼리에 ORDER BY / LIMIT 이 있으면 안 됨 (안쪽에서 먼저 잘리거나 정렬이 무시되어 페이지가 틀어짐)
+ */
+record Keyset(String column, boolean descending) {
+
+    static Keyset of(String keyColumn) {
+        if (keyColumn == null || keyColumn.isBlank()) {
+            throw new IllegalArgumentException("keyset 키 컬럼이 비어 있습니다.");
+        }
+        String[] parts = keyColumn.trim().split("\\s+");
+        if (parts.length > 2 || (parts.length == 2 && !parts[1].equalsIgnoreCase("ASC") && !parts[1].equalsIgnoreCase("DESC"))) {
+            throw new IllegalArgumentException("keyset 키 컬럼 형식이 잘못되었습니다: " + keyColumn);
+        }
+
+        // 바깥 쿼리에서는 derived table 의 컬럼 이름으로 참조 (a.id -> id)
+        String column = parts[0].replace("`", "");
+        int dot = column.lastIndexOf('.');
+        if (dot >= 0) {
+            column = column.substring(dot + 1);
+        }
+        return new Keyset(column, parts.length == 2 && parts[1].equalsIgnoreCase("DESC"));
+    }
+
+    /**
+     * first 면 WHERE 없이 첫 페이지 (바인딩 순서: 원래 파라미터, [마지막 키], LIMIT)
+     */
+    String render(String rawSql, boolean first) {
+        checkSource(rawSql);
+
+        StringBuilder sb = new StringBuilder(rawSql.length() + 96)
+                .append("SELECT * FROM (\n")
+                .append(rawSql)
+                .append("\n) simpledb_keyset");
+
+        if (!first) {
+            sb.append("\nWHERE `").append(column).append(descending ? "` < ?" : "` > ?");
+        }
+        sb.append("\nORDER BY `").append(column).append(descending ? "` DESC" : "`");
+        sb.append("\nLIMIT ?");
+        return sb.toString();
+    }
+
+    /**
+     * 괄호 밖(서브쿼리 제외)의 ORDER BY / LIMIT 을 거부
+     * 문자열 리터럴 / 인용된 식별자 / 주석 안은 건너뜀
+     */
+    static void checkSource(String rawSql) {
+        int depth = 0;
+        int i = 0;
+        while (i < rawSql.length()) {
+            int end = Dialect.quotedOrCommentEnd(rawSql, i);
+            if (end != i) {
+                i = end;
+                continue;
+            }
+
+            char c = rawSql.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (Character.isLetter(c) && (i == 0 || !isWordChar(rawSql.charAt(i - 1)))) {
+                int wordEnd = i;
+                while (wordEnd < rawSql.length() && isWordChar(rawSql.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                if (depth == 0) {
+                    String word = rawSql.substring(i, wordEnd);
+                    if (word.equalsIgnoreCase("LIMIT")
+                            || (word.equalsIgnoreCase("ORDER") && startsWithWord(rawSql, wordEnd, "BY"))) {
+                        throw new IllegalArgumentException(
+                                "keyset 페이지 조회의 원래 쿼리에는 ORDER BY / LIMIT 을 쓸 수 없습니다 (정렬과 개수는 keyColumn / pageSize 로 지정): " + rawSql);
+                    }
+                }
+                i = wordEnd;
+                continue;
+            }
+            i++;
+        }
+    }
+
+    private static boolean startsWithWord(String sql, int from, String word) {
+        int i = from;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return sql.regionMatches(true, i, word, 0, word.length())
+                && (i + word.length() == sql.length() || !isWordChar(sql.charAt(i + word.length())));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    int columnIndex(String[] labels) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(column)) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("조회 결과에 keyset 키 컬럼이 없습니다: " + column);
+    }
+
+    /**
+     * 마지막 키 -> "타입:값" -> Base64(URL-safe)
+     */
+    static String encode(Object key) {
+        String typed;
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            typed = "n:" + ((Number) key).longValue();
+        } else if (key instanceof BigDecimal || key instanceof BigInteger) {
+            typed = "d:" + key;
+        } else if (key instanceof String s) {
+            typed = "s:" + s;
+        } else if (key instanceof Timestamp ts) {
+            typed = "t:" + ts.toLocalDateTime();
+        } else if (key instanceof LocalDateTime ldt) {
+            typed = "t:" + ldt;
+        } else if (key == null) {
+            throw new IllegalStateException("keyset 키 값이 NULL 입니다.");
+        } else {
+            throw new IllegalStateException("keyset 키로 쓸 수 없는 타입입니다: " + key.getClass().getName());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(typed.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object decode(String token) {
+        String typed;
+        try {
+            typed = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token, e);
+        }
+        if (typed.length() < 2 || typed.charAt(1) != ':') {
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token);
+        }
+
+        String value = typed.substring(2);
+        try {
+            return switch (typed.charAt(0)) {
+                case 'n' -> Long.parseLong(value);
+                case 'd' -> new BigDecimal(value);
+                case 's' -> value;
+                case 't' -> LocalDateTime.parse(value);
+                default -> throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token);
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.back.simpleDb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ *  LoadHarness 역할
+ *  1. article 테이블에 insert / select / update / 트랜잭션을 섞은 부하를 N 개 스레드(또는 가상 스레드)로 발생
+ *  2. 모드(pooled / unpooled, cached / uncached)별로 같은 부하를 돌려서
+ *  3. ops/sec, 작업별 지연시간 percentile, 커넥션 수를 출력
+ *
+ *  실행: gradle run --args="--threads 32 --duration 30 --pooled true,false --cached true,false"
+ *  (com.back.Main 이 인자를 그대로 넘김)
+ *
+ *  옵션 (괄호는 기본값)
+ *  --dialect (mysql, h2 면 외부 DB 없이 embedded H2 사용) --host (localhost) --user (root) --password () --db (simpleDb__bench)
+ *  --threads (16) --virtual (false) --warmup 초 (5) --duration 초 (20) --seed row 수 (10000) --poolMax (10)
+ *  --mix insert:select:update:tx (10:70:15:5) --pooled (true,false) --cached (false,true)
+ */
+public class LoadHarness {
+
+    enum Op {
+        INSERT, SELECT, UPDATE, TRANSACTION
+    }
+
+    /**
+     * 실행 옵션
+     * weights 는 INSERT, SELECT, UPDATE, TRANSACTION 순서의 비율
+     */
+    public record Options(Dialect dialect, String host, String username, String password, String dbName,
+                          int threads, boolean virtualThreads, int warmupSeconds, int durationSeconds,
+                          int seedRows, int poolMaxSize, int[] weights,
+                          List<Boolean> pooledModes, List<Boolean> cachedModes) {
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                    throw new IllegalArgumentException("옵션은 --이름 값 형태여야 합니다: " + args[i]);
+                }
+                values.put(args[i].substring(2), args[++i]);
+            }
+
+            String[] mix = values.getOrDefault("mix", "10:70:15:5").split(":");
+            if (mix.length != Op.values().length) {
+                throw new IllegalArgumentException("--mix 는 insert:select:update:tx 형태여야 합니다.");
+            }
+            int[] weights = new int[mix.length];
+            for (int i = 0; i < mix.length; i++) {
+                weights[i] = Integer.parseInt(mix[i]);
+            }
+
+            return new Options(
+                    Dialect.of(values.getOrDefault("dialect", "mysql")),
+                    values.getOrDefault("host", "localhost"),
+                    values.getOrDefault("user", "root"),
+                    values.getOrDefault("password", ""),
+                    values.getOrDefault("db", "simpleDb__bench"),
+                    Integer.parseInt(values.getOrDefault("threads", "16")),
+                    Boolean.parseBoolean(values.getOrDefault("virtual", "false")),
+                    Integer.parseInt(values.getOrDefault("warmup", "5")),
+                    Integer.parseInt(values.getOrDefault("duration", "20")),
+                    Integer.parseInt(values.getOrDefault("seed", "10000")),
+                    Integer.parseInt(values.getOrDefault("poolMax", "10")),
+                    weights,
+                    parseModes(values.getOrDefault("pooled", "true,false")),
+                    parseModes(values.getOrDefault("cached", "false,true")));
+        }
+
+        private static List<Boolean> parseModes(String value) {
+            List<Boolean> modes = new ArrayList<>();
+            for (String mode : value.split(",")) {
+                modes.add(Boolean.parseBoolean(mode.trim()));
+            }
+            return modes;
+        }
+    }
+
+    /**
+     * 모드 하나의 실행 결과
+     */
+    record Result(boolean pooled, boolean cached, long elapsedNanos,
+                  Map<Op, LatencyHistogram.Snapshot> latencies, long errors,
+                  long createdConnections, int peakOpenConnections) {
+
+        long totalOps() {
+            long total = 0;
+            for (LatencyHistogram.Snapshot s : latencies.values()) {
+                total += s.count();
+            }
+            return total;
+        }
+
+        double opsPerSecond() {
+            return totalOps() / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    private final Options options;
+    private final Supplier<SimpleDb> simpleDbFactory;
+
+    public LoadHarness(Options options) {
+        this(options, () -> options.dialect == Dialect.H2
+                ? SimpleDb.embedded(options.dbName)
+                : new SimpleDb(options.host, options.username, options.password, options.dbName));
+    }
+
+    LoadHarness(Options options, Supplier<SimpleDb> simpleDbFactory) {
+        this.options = options;
+        this.simpleDbFactory = simpleDbFactory;
+    }
+
+    public static void main(String[] args) {
+        Options options = Options.parse(args);
+        LoadHarness harness = new LoadHarness(options);
+
+        List<Result> results = new ArrayList<>();
+        for (boolean pooled : options.pooledModes) {
+            for (boolean cached : options.cachedModes) {
+                results.add(harness.run(pooled, cached));
+            }
+        }
+        System.out.print(report(options, results));
+    }
+
+    Result run(boolean pooled, boolean cached) {
+        SimpleDb simpleDb = simpleDbFactory.get();
+        simpleDb.setPooled(pooled);
+        simpleDb.setPoolMaxSize(options.poolMaxSize);
+        simpleDb.setPoolAcquireTimeoutMillis(TimeUnit.SECONDS.toMillis(options.warmupSeconds + options.durationSeconds + 30));
+
+        try {
+            AtomicLong maxId = new AtomicLong(prepareSchema(simpleDb));
+
+            // 워밍업 (기록하지 않음)
+            drive(simpleDb, cached, maxId, options.warmupSeconds, null, new LongAdder());
+
+            Map<Op, LatencyHistogram> histograms = new EnumMap<>(Op.class);
+            for (Op op : Op.values()) {
+                histograms.put(op, new LatencyHistogram());
+            }
+            LongAdder errors = new LongAdder();
+            long createdBefore = simpleDb.getCreatedConnectionCount();
+
+            AtomicInteger peakOpen = new AtomicInteger(simpleDb.getOpenConnectionCount());
+            Thread sampler = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peakOpen.accumulateAndGet(simpleDb.getOpenConnectionCount(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "simpleDb-load-sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+
+            long elapsed = drive(simpleDb, cached, maxId, options.durationSeconds, histograms, errors);
+            sampler.interrupt();
+
+            Map<Op, LatencyHistogram.Snapshot> latencies = new EnumMap<>(Op.class);
+            histograms.forEach((op, histogram) -> latencies.put(op, histogram.snapshot()));
+
+            return new Result(pooled, cached, elapsed, latencies, errors.sum(),
+                    simpleDb.getCreatedConnectionCount() - createdBefore, peakOpen.get());
+        } finally {
+            simpleDb.shutdown();
+        }
+    }
+
+    /**
+     * SimpleDbTest 와 같은 article 테이블을 만들고 seedRows 개를 채움, 마지막 id 반환
+     */
+    private long prepareSchema(SimpleDb simpleDb) {
+        simpleDb.run("DROP TABLE IF EXISTS article");
+        simpleDb.run("""
+                CREATE TABLE article (
+                    id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+                    PRIMARY KEY(id),
+                    createdDate DATETIME NOT NULL,
+                    modifiedDate DATETIME NOT NULL,
+                    title VARCHAR(100) NOT NULL,
+                    `body` TEXT NOT NULL,
+                    isBlind BIT(1) NOT NULL DEFAULT 0
+                )
+                """);
+
+        if (options.seedRows <= 0) {
+            return 0;
+        }
+
+        Sql sql = simpleDb.genSql()
+                .append("INSERT INTO article SET createdDate = NOW(), modifiedDate = NOW(), title = ?, `body` = ?, isBlind = ?");
+        for (int i = 1; i <= options.seedRows; i++) {
+            sql.addBatch("제목" + i, "내용" + i, i % 2 == 0);
+        }
+        long[] ids = sql.insertBatch();
+        return ids[ids.length - 1];
+    }
+
+    /**
+     * seconds 동안 threads 개의 작업자로 부하 발생, 실제 걸린 시간(ns) 반환
+     * histograms 가 null 이면 기록하지 않음 (워밍업)
+     */
+    private long drive(SimpleDb simpleDb, boolean cached, AtomicLong maxId, int seconds,
+                       Map<Op, LatencyHistogram> histograms, LongAdder errors) {
+        if (seconds <= 0) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = newExecutor();
+        try {
+            for (int i = 0; i < options.threads; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Op op = pick();
+                        long opStart = System.nanoTime();
+                        try {
+                            execute(simpleDb, op, cached, maxId);
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                            continue;
+                        }
+                        if (histograms != null) {
+                            histograms.get(op).record(System.nanoTime() - opStart);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            if (!executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private ExecutorService newExecutor() {
+        if (options.virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("가상 스레드를 지원하지 않는 JDK 입니다. 플랫폼 스레드로 실행합니다.");
+            }
+        }
+        return Executors.newFixedThreadPool(options.threads, r -> {
+            Thread t = new Thread(r, "simpleDb-load");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private Op pick() {
+        int[] weights = options.weights;
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return Op.values()[i];
+            }
+        }
+        return Op.SELECT;
+    }
+
+    private void execute(SimpleDb simpleDb, Op op, boolean cached, AtomicLong maxId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextLong(Math.max(maxId.get(), 1));
+
+        switch (op) {
+            case INSERT -> {
+                long newId = simpleDb.genSql()
+                        .append("INSERT INTO article")
+                        .append("SET createdDate = NOW(), modifiedDate = NOW()")
+                        .append(", title = ?", "제목 new")
+                        .append(", `body` = ?", "내용 new")
+                        .append(", isBlind = ?", false)
+                        .insert();
+                maxId.accumulateAndGet(newId, Math::max);
+            }
+            case SELECT -> {
+                Sql sql = simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", id);
+                if (cached) {
+                    sql.cached();
+                }
+                sql.selectRow(Article.class);
+            }
+            case UPDATE -> simpleDb.genSql()
+                    .append("UPDATE article")
+                    .append("SET modifiedDate = NOW()")
+                    .append(", title = ?", "제목 " + random.nextInt(1000))
+                    .append("WHERE id = ?", id)
+                    .update();
+            case TRANSACTION -> {
+                simpleDb.startTransaction();
+                try {
+                    Article article = simpleDb.genSql()
+                            .append("SELECT * FROM article WHERE id = ?", id)
+                            .selectRow(Article.class);
+                    simpleDb.genSql()
+                            .append("UPDATE article")
+                            .append("SET isBlind = ?", article == null || !article.isBlind())
+                            .append("WHERE id = ?", id)
+                            .update();
+                    simpleDb.commit();
+                } catch (RuntimeException e) {
+                    simpleDb.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static String report(Options options, List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("threads=").append(options.threads)
+                .append(options.virtualThreads ? " (virtual)" : "")
+                .append(", duration=").append(Duration.ofSeconds(options.durationSeconds))
+                .append(", mix(insert:select:update:tx)=")
+                .append(options.weights[0]).append(':').append(options.weights[1]).append(':')
+                .append(options.weights[2]).append(':').append(options.weights[3])
+                .append(", poolMax=").append(options.poolMaxSize).append('\n');
+
+        for (Result result : results) {
+            sb.append('\n')
+                    .append(result.pooled ? "pooled" : "unpooled").append(" / ")
+                    .append(result.cached ? "cached" : "uncached").append('\n')
+                    .append(String.format("  %,d ops, %,.0f ops/sec, %d errors, %d connections created, peak pool size %d%n",
+                            result.totalOps(), result.opsPerSecond(), result.errors,
+                            result.createdConnections, result.peakOpenConnections))
+                    .append(String.format("  %-12s %10s %10s %10s %10s %10s%n", "op", "count", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+
+            result.latencies.forEach((op, s) -> sb.append(String.format("  %-12s %10d %10.3f %10.3f %10.3f %10.3f%n",
+                    op.name().toLowerCase(), s.count(),
+                    millis(s.percentile(0.5)), millis(s.percentile(0.99)), millis(s.percentile(0.999)), millis(s.maxNanos()))));
+        }
+        return sb.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,227 @@
+package com.back.simpleDb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  MultiRowInsert 역할
+ *  1. INSERT INTO table (c1, c2) VALUES (?, ?), (?, ?) ... 한 문장으로 여러 row 를 넣음
+ *  2. placeholder 65535 개 제한, max_allowed_packet 을 넘지 않도록 chunk 로 나눔
+ *  3. 테이블 / 컬럼 이름은 Dialect.quoteIdentifier 로 인용
+ *  실행(prepare / 생성된 id 수집 / 트랜잭션)은 Sql.insertRows 가 다른 쿼리와 같은 경로로 함
+ */
+class MultiRowInsert {
+
+    // MySQL prepared statement 의 placeholder 최대 개수
+    static final int MAX_PLACEHOLDERS = 65535;
+
+    // 값 크기 추정이 빗나갈 수 있으므로 패킷의 일부만 사용
+    private static final double PACKET_USAGE = 0.75;
+
+    // 인용된 이름
+    private final String table;
+    private final String[] columns;
+    private final List<Object[]> rows;
+
+    MultiRowInsert(Dialect dialect, String table, String[] columns, List<Object[]> rows) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("INSERT 할 컬럼이 없습니다.");
+        }
+        this.table = dialect.quoteIdentifier(table);
+        this.columns = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = dialect.quoteIdentifier(columns[i]);
+        }
+        this.rows = rows;
+    }
+
+    static MultiRowInsert ofMaps(Dialect dialect, String table, List<Map<String, Object>> maps) {
+        String[] columns = maps.get(0).keySet().toArray(new String[0]);
+        List<Object[]> rows = new ArrayList<>(maps.size());
+
+        for (Map<String, Object> map : maps) {
+            if (map.size() != columns.length) {
+                throw new IllegalArgumentException("모든 row 의 컬럼 구성이 같아야 합니다: " + map.keySet());
+            }
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                if (!map.containsKey(columns[i])) {
+                    throw new IllegalArgumentException("모든 row 의 컬럼 구성이 같아야 합니다: " + map.keySet());
+                }
+                row[i] = map.get(columns[i]);
+            }
+            rows.add(row);
+        }
+        return new MultiRowInsert(dialect, table, columns, rows);
+    }
+
+    /**
+     * 객체의 필드 값을 컬럼 순서대로 읽음
+     * columns 가 비어있으면 id 를 제외한 모든 인스턴스 필드를 컬럼으로 사용
+     */
+    static <T> MultiRowInsert ofObjects(Dialect dialect, String table, List<T> objects, String... columns) {
+        Class<?> clazz = objects.get(0).getClass();
+        String[] targetColumns = columns.length > 0 ? columns : defaultColumns(clazz);
+        MethodHandle[] getters = getters(clazz, targetColumns);
+
+        List<Object[]> rows = new ArrayList<>(objects.size());
+        try {
+            for (T obj : objects) {
+                Object[] row = new Object[getters.length];
+                for (int i = 0; i < getters.length; i++) {
+                    row[i] = getters[i].invokeExact((Object) obj);
+                }
+                rows.add(row);
+            }
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return new MultiRowInsert(dialect, table, targetColumns, rows);
+    }
+
+    private static String[] defaultColumns(Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredFields())
+                .filter(f -> !Modifier.isStatic(f.getModifiers()) && !f.isSynthetic())
+                .map(Field::getName)
+                .filter(name -> !name.equals("id"))
+                .toArray(String[]::new);
+    }
+
+    private static MethodHandle[] getters(Class<?> clazz, String[] columns) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            MethodType getterType = MethodType.methodType(Object.class, Object.class);
+
+            MethodHandle[] getters = new MethodHandle[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                Field field = clazz.getDeclaredField(RowMapper.toFieldName(columns[i]));
+                getters[i] = lookup.unreflectGetter(field).asType(getterType);
+            }
+            return getters;
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("INSERT 할 필드를 읽을 수 없습니다: " + clazz, e);
+        }
+    }
+
+    /**
+     * 로그 / 캐시 무효화용 SQL (row 하나짜리 형태)
+     */
+    String describe() {
+        return render(1);
+    }
+
+    int rowCount() {
+        return rows.size();
+    }
+
+    /**
+     * 한 문장으로 넣을 row 구간 [from, to)
+     */
+    record Chunk(int from, int to) {
+        int rowCount() {
+            return to - from;
+        }
+    }
+
+    /**
+     * placeholder 개수 제한과 max_allowed_packet 을 넘지 않도록 row 를 나눔
+     */
+    List<Chunk> chunks(long maxAllowedPacket) {
+        List<Chunk> chunks = new ArrayList<>();
+        int maxRowsByPlaceholder = MAX_PLACEHOLDERS / columns.length;
+        long packetBudget = (long) (maxAllowedPacket * PACKET_USAGE);
+
+        int from = 0;
+        while (from < rows.size()) {
+            int to = from;
+            long bytes = estimateHeaderBytes();
+
+            while (to < rows.size() && to - from < maxRowsByPlaceholder) {
+                long rowBytes = estimateRowBytes(rows.get(to));
+                // 최소 한 row 는 보냄 (한 row 가 패킷보다 크면 서버가 에러를 돌려줌)
+                if (to > from && bytes + rowBytes > packetBudget) {
+                    break;
+                }
+                bytes += rowBytes;
+                to++;
+            }
+
+            chunks.add(new Chunk(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    String render(Chunk chunk) {
+        return render(chunk.rowCount());
+    }
+
+    void bind(PreparedStatement pstmt, Chunk chunk) throws SQLException {
+        int index = 1;
+        for (int r = chunk.from; r < chunk.to; r++) {
+            for (Object value : rows.get(r)) {
+                pstmt.setObject(index++, value);
+            }
+        }
+    }
+
+    private String render(int rowCount) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(columns[i]);
+        }
+        sb.append(") VALUES ");
+
+        String group = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        for (int r = 0; r < rowCount; r++) {
+            if (r > 0) {
+                sb.append(", ");
+            }
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+
+    private long estimateHeaderBytes() {
+        long bytes = 64 + table.length();
+        for (String column : columns) {
+            bytes += column.length() + 4;
+        }
+        return bytes;
+    }
+
+    /**
+     * 값 하나당 대략적인 전송 크기 (문자열은 utf8mb4 최악의 경우 4바이트)
+     */
+    private long estimateRowBytes(Object[] row) {
+        long bytes = 4L * columns.length;
+        for (Object value : row) {
+            if (value == null) {
+                bytes += 4;
+            } else if (value instanceof CharSequence cs) {
+                bytes += 4L * cs.length() + 2;
+            } else if (value instanceof byte[] b) {
+                bytes += 2L * b.length + 3;
+            } else if (value instanceof TemporalAccessor || value instanceof java.util.Date) {
+                bytes += 32;
+            } else {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,14 @@
+package com.back.simpleDb;
+
+import java.util.List;
+
+/**
+ * keyset 페이지 조회 결과
+ * nextToken 은 다음 페이지를 조회할 때 넘기는 값 (마지막 페이지면 null)
+ */
+public record Page<T>(List<T> content, String nextToken) {
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
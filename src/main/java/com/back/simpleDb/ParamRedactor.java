@@ -0,0 +1,15 @@
+package com.back.simpleDb;
+
+/**
+ * 쿼리 로그에 남길 파라미터 값을 가림 (비밀번호, 개인정보 ...)
+ * index 는 1부터 시작 (PreparedStatement 바인딩 순서)
+ */
+@FunctionalInterface
+public interface ParamRedactor {
+
+    ParamRedactor NONE = (sql, index, value) -> value;
+
+    ParamRedactor ALL = (sql, index, value) -> value == null ? null : "****";
+
+    Object redact(String sql, int index, Object value);
+}
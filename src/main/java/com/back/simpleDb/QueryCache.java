@@ -0,0 +1,270 @@
+package com.back.simpleDb;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *  QueryCache 역할
+ *  1. (SQL, 바인딩 파라미터) -> 조회 결과 캐싱 (LRU + TTL)
+ *  2. 결과마다 참조한 테이블을 기억해두고, 그 테이블에 쓰기가 일어나면 무효화
+ *  3. 조회 도중 무효화가 일어났으면 그 결과는 저장하지 않음 (version 비교)
+ */
+class QueryCache {
+
+    // 테이블 목록이 오는 키워드 (FROM / UPDATE 는 콤마로 여러 테이블이 올 수 있음)
+    private static final Pattern TABLE_KEYWORD = Pattern.compile(
+            "\\b(FROM|UPDATE|JOIN|STRAIGHT_JOIN|INTO|TABLE|TRUNCATE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern IDENTIFIER = Pattern.compile("`[^`]+`(?:\\.`[^`]+`)?|[A-Za-z0-9_$]+(?:\\.[A-Za-z0-9_$]+)?");
+    // 테이블 이름 뒤에 오면 별칭이 아닌 키워드
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of(
+            "WHERE", "GROUP", "ORDER", "LIMIT", "HAVING", "WINDOW", "UNION", "FOR", "LOCK", "INTO", "SET", "VALUES",
+            "SELECT", "ON", "USING", "JOIN", "INNER", "LEFT", "RIGHT", "CROSS", "NATURAL", "STRAIGHT_JOIN", "FULL",
+            "OUTER", "PARTITION", "USE", "FORCE", "IGNORE", "AS", "DEFAULT", "LIKE", "IF");
+
+    // 참조하는 테이블을 확실히 알 수 없는 SQL 의 테이블 목록 -> 어떤 쓰기가 일어나도 무효화
+    static final String UNKNOWN_TABLES = "*";
+
+    record Key(String kind, String sql, List<Object> params) {}
+
+    private record Entry(Object value, Set<String> tables, long expiresAt) {}
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong version = new AtomicLong();
+
+    QueryCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * SQL 에서 참조하는 테이블 이름들 (소문자)
+     * FROM a, b / UPDATE a, b 처럼 콤마로 나열된 테이블도 모두 찾음
+     * 테이블 자리에 예상하지 못한 토큰이 있으면 UNKNOWN_TABLES 를 넣음
+     * 테이블 키워드가 아예 없으면 빈 Set -> 쓰기라면 전체 무효화 대상, 조회라면 캐싱하지 않음
+     */
+    static Set<String> tablesOf(String sql) {
+        Set<String> tables = new TreeSet<>();
+        String text = stripLiteralsAndComments(sql);
+        Matcher keyword = TABLE_KEYWORD.matcher(text);
+
+        while (keyword.find()) {
+            String kw = keyword.group(1).toUpperCase(Locale.ROOT);
+            // SELECT ... FOR UPDATE / ON DUPLICATE KEY UPDATE 는 테이블이 아님
+            if (kw.equals("UPDATE")) {
+                String previous = previousWord(text, keyword.start());
+                if (previous.equalsIgnoreCase("FOR") || previous.equalsIgnoreCase("KEY")) {
+                    continue;
+                }
+            }
+            boolean list = kw.equals("FROM") || kw.equals("UPDATE");
+            int pos = keyword.end();
+
+            // INSERT INTO t / TRUNCATE TABLE t / IF NOT EXISTS 같은 수식어
+            if (kw.equals("TRUNCATE") || kw.equals("TABLE")) {
+                pos = skipWord(text, pos, "TABLE");
+                pos = skipWord(text, pos, "IF");
+                pos = skipWord(text, pos, "NOT");
+                pos = skipWord(text, pos, "EXISTS");
+            }
+
+            while (true) {
+                pos = skipSpaces(text, pos);
+                if (pos < text.length() && text.charAt(pos) == '(') {
+                    // 서브쿼리 / derived table 안의 FROM 은 바깥 루프에서 따로 찾음
+                    pos = skipParens(text, pos);
+                } else {
+                    Matcher identifier = IDENTIFIER.matcher(text).region(pos, text.length());
+                    if (!identifier.lookingAt() || isClauseKeyword(identifier.group())) {
+                        tables.add(UNKNOWN_TABLES);
+                        break;
+                    }
+                    tables.add(normalize(identifier.group()));
+                    pos = identifier.end();
+                }
+                if (!list) {
+                    break;
+                }
+
+                pos = skipAlias(text, pos);
+                pos = skipSpaces(text, pos);
+                if (pos >= text.length() || text.charAt(pos) != ',') {
+                    break;
+                }
+                pos++;
+            }
+        }
+        return tables;
+    }
+
+    private static String normalize(String identifier) {
+        String table = identifier.replace("`", "").toLowerCase(Locale.ROOT);
+        int dot = table.lastIndexOf('.');
+        return dot >= 0 ? table.substring(dot + 1) : table;
+    }
+
+    private static boolean isClauseKeyword(String word) {
+        return CLAUSE_KEYWORDS.contains(word.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * [AS] alias 를 건너뜀 (다음 단어가 절 키워드면 별칭이 아님)
+     */
+    private static int skipAlias(String text, int pos) {
+        int next = skipWord(text, skipSpaces(text, pos), "AS");
+        Matcher alias = IDENTIFIER.matcher(text).region(skipSpaces(text, next), text.length());
+        if (alias.lookingAt() && !isClauseKeyword(alias.group())) {
+            return alias.end();
+        }
+        return pos;
+    }
+
+    private static int skipWord(String text, int pos, String word) {
+        int start = skipSpaces(text, pos);
+        int end = start + word.length();
+        if (end <= text.length() && text.regionMatches(true, start, word, 0, word.length())
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)) && text.charAt(end) != '_')) {
+            return end;
+        }
+        return pos;
+    }
+
+    private static String previousWord(String text, int pos) {
+        int end = pos;
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && (Character.isLetterOrDigit(text.charAt(start - 1)) || text.charAt(start - 1) == '_')) {
+            start--;
+        }
+        return text.substring(start, end);
+    }
+
+    private static int skipSpaces(String text, int pos) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipParens(String text, int pos) {
+        int depth = 0;
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * 문자열 리터럴과 주석을 공백으로 바꿈 (그 안의 FROM 등을 테이블로 읽지 않도록)
+     */
+    private static String stripLiteralsAndComments(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int j = i + 1;
+                while (j < sql.length() && sql.charAt(j) != c) {
+                    j += sql.charAt(j) == '\\' ? 2 : 1;
+                }
+                sb.append(' ');
+                i = j + 1;
+            } else if (c == '#' || (c == '-' && sql.startsWith("-- ", i))) {
+                int end = sql.indexOf('\n', i);
+                sb.append(' ');
+                i = end < 0 ? sql.length() : end;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                sb.append(' ');
+                i = end < 0 ? sql.length() : end + 2;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 조회 전에 읽어두고 put 할 때 넘김
+     */
+    long version() {
+        return version.get();
+    }
+
+    synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    synchronized void put(Key key, Object value, Set<String> tables, long versionAtStart) {
+        // 조회하는 동안 쓰기가 있었으면 오래된 결과일 수 있음
+        if (version.get() != versionAtStart || tables.isEmpty()) {
+            return;
+        }
+
+        entries.put(key, new Entry(value, tables, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * tables 를 참조하는 결과와 테이블을 알 수 없는 결과 삭제
+     * 비어있거나 UNKNOWN_TABLES 가 있으면 전부 삭제
+     */
+    synchronized void invalidate(Collection<String> tables) {
+        version.incrementAndGet();
+
+        if (tables.isEmpty() || tables.contains(UNKNOWN_TABLES)) {
+            entries.clear();
+            return;
+        }
+
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Set<String> cachedTables = it.next().getValue().tables;
+            if (cachedTables.contains(UNKNOWN_TABLES)) {
+                it.remove();
+                continue;
+            }
+            for (String table : tables) {
+                if (cachedTables.contains(table)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
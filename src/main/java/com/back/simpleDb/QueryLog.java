@@ -0,0 +1,138 @@
+package com.back.simpleDb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  QueryLog 역할
+ *  1. 쿼리를 실행한 스레드는 고정 크기 ring buffer 에 넣기만 함 (가득 차면 버리고 카운트)
+ *  2. 백그라운드 스레드 하나가 꺼내서 파라미터를 가리고 QueryLogWriter 로 씀
+ *  3. sampleRate 로 일부만 기록 (실패한 쿼리는 항상 기록)
+ */
+class QueryLog {
+
+    private static final int DRAIN_BATCH = 256;
+
+    /**
+     * 버퍼에 넣는 가공 전 데이터 (문자열 만들기, redact 는 백그라운드에서)
+     */
+    private record Pending(long timestampMillis, String threadName, String operation, String sql,
+                           Object[] params, long elapsedNanos, long rowCount, Throwable error) {}
+
+    private final QueryLogWriter writer;
+    private final ParamRedactor redactor;
+    private final double sampleRate;
+    private final ArrayBlockingQueue<Pending> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    QueryLog(QueryLogWriter writer, ParamRedactor redactor, double sampleRate, int capacity) {
+        this.writer = writer;
+        this.redactor = redactor;
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        this.worker = new Thread(this::drainLoop, "simpleDb-query-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void record(String operation, String sql, List<Object> params, long elapsedNanos, long rowCount, Throwable error) {
+        if (error == null && sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        Pending pending = new Pending(System.currentTimeMillis(), Thread.currentThread().getName(),
+                operation, sql, params.toArray(), elapsedNanos, rowCount, error);
+
+        if (!buffer.offer(pending)) {
+            dropped.increment();
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(DRAIN_BATCH);
+
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, DRAIN_BATCH - 1);
+                writeAll(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        buffer.drainTo(batch);
+        writeAll(batch);
+    }
+
+    private void writeAll(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Pending pending : batch) {
+            try {
+                writer.write(toEntry(pending));
+            } catch (RuntimeException ignore) {
+                // 로그 때문에 로그 스레드가 죽지 않도록
+            }
+        }
+        try {
+            writer.flush();
+        } catch (RuntimeException ignore) {}
+    }
+
+    private QueryLogEntry toEntry(Pending pending) {
+        List<Object> params;
+        if (pending.params.length == 0) {
+            params = Collections.emptyList();
+        } else {
+            params = new ArrayList<>(pending.params.length);
+            for (int i = 0; i < pending.params.length; i++) {
+                params.add(redactor.redact(pending.sql, i + 1, pending.params[i]));
+            }
+        }
+
+        String error = pending.error == null ? null : String.valueOf(rootCause(pending.error));
+
+        return new QueryLogEntry(pending.timestampMillis, pending.threadName, pending.operation, pending.sql,
+                params, pending.elapsedNanos, pending.rowCount, error);
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * 남아있는 로그를 다 쓰고 종료
+     */
+    void close() {
+        closed = true;
+        try {
+            worker.join(5_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
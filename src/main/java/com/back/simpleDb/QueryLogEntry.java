@@ -0,0 +1,27 @@
+package com.back.simpleDb;
+
+import java.util.List;
+
+/**
+ * 쿼리 실행 한 건에 대한 로그
+ * params 는 redactor 를 거친 값, error 는 실패했을 때만 채워짐
+ */
+public record QueryLogEntry(
+        long timestampMillis,
+        String threadName,
+        String operation,
+        String sql,
+        List<Object> params,
+        long elapsedNanos,
+        long rowCount,
+        String error
+) {
+
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    public boolean failed() {
+        return error != null;
+    }
+}
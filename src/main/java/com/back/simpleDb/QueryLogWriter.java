@@ -0,0 +1,39 @@
+package com.back.simpleDb;
+
+/**
+ * 쿼리 로그를 실제로 내보내는 곳 (파일, 로거, 수집기 ...)
+ * 백그라운드 스레드 하나에서만 호출되므로 구현체가 동기화할 필요 없음
+ */
+@FunctionalInterface
+public interface QueryLogWriter {
+
+    void write(QueryLogEntry entry);
+
+    /**
+     * 배치 단위로 받은 로그를 다 쓴 뒤 호출 (버퍼 flush 용)
+     */
+    default void flush() {
+    }
+
+    /**
+     * devMode 에서 쓰는 기본 writer
+     */
+    static QueryLogWriter stdout() {
+        return entry -> {
+            StringBuilder sb = new StringBuilder()
+                    .append("SQL: ").append(entry.sql())
+                    .append("  [").append(entry.operation())
+                    .append(", ").append(String.format("%.3fms", entry.elapsedMillis()))
+                    .append(", rows=").append(entry.rowCount())
+                    .append("]");
+
+            for (int i = 0; i < entry.params().size(); i++) {
+                sb.append("\n    $").append(i + 1).append(" = ").append(entry.params().get(i));
+            }
+            if (entry.failed()) {
+                sb.append("\n  error: ").append(entry.error());
+            }
+            System.out.println(sb);
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ *  ReplicaRouter 역할
+ *  1. replica 마다 커넥션 풀을 따로 유지 (pooled 모드)
+ *  2. 조회용 커넥션을 ROUND_ROBIN / LEAST_IN_FLIGHT 로 고른 replica 에서 빌려줌
+ *  3. replica 별로 빌려준 횟수를 셈
+ */
+class ReplicaRouter {
+
+    private static final class Replica {
+        private final ConnectionPool.ConnectionFactory factory;
+        // 비풀 모드면 null
+        private final ConnectionPool pool;
+        private final LongAdder borrowed = new LongAdder();
+
+        private Replica(ConnectionPool.ConnectionFactory factory, ConnectionPool pool) {
+            this.factory = factory;
+            this.pool = pool;
+        }
+
+        private Connection borrow() throws SQLException {
+            Connection conn = pool != null ? pool.borrow() : factory.create();
+            borrowed.increment();
+            return conn;
+        }
+    }
+
+    private final Replica[] replicas;
+    private final ReplicaRouting routing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * newPool 이 null 이면 매번 새로 연결 (비풀 모드)
+     */
+    ReplicaRouter(List<ConnectionPool.ConnectionFactory> factories, ReplicaRouting routing,
+                  Function<ConnectionPool.ConnectionFactory, ConnectionPool> newPool) {
+        this.replicas = new Replica[factories.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            ConnectionPool.ConnectionFactory factory = factories.get(i);
+            replicas[i] = new Replica(factory, newPool == null ? null : newPool.apply(factory));
+        }
+        this.routing = routing;
+    }
+
+    Connection borrow() throws SQLException {
+        return select().borrow();
+    }
+
+    private Replica select() {
+        // 같은 값이면 앞쪽 replica 로만 몰리지 않도록 시작 위치를 돌림
+        int start = Math.floorMod(next.getAndIncrement(), replicas.length);
+        if (routing == ReplicaRouting.ROUND_ROBIN || replicas[start].pool == null) {
+            return replicas[start];
+        }
+
+        Replica best = replicas[start];
+        int bestActive = best.pool.getActiveCount();
+        for (int i = 1; i < replicas.length && bestActive > 0; i++) {
+            Replica replica = replicas[(start + i) % replicas.length];
+            int active = replica.pool.getActiveCount();
+            if (active < bestActive) {
+                best = replica;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * replica 별 조회 커넥션을 빌려준 횟수 (추가한 순서)
+     */
+    long[] getBorrowedCounts() {
+        long[] counts = new long[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            counts[i] = replicas[i].borrowed.sum();
+        }
+        return counts;
+    }
+
+    void close() {
+        for (Replica replica : replicas) {
+            if (replica.pool != null) {
+                replica.pool.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.back.simpleDb;
+
+/**
+ * 트랜잭션 밖의 조회를 어느 replica 로 보낼지
+ */
+public enum ReplicaRouting {
+    // replica 를 차례대로 돌아가며 사용
+    ROUND_ROBIN,
+    // 빌려간 커넥션이 가장 적은 replica 사용 (pooled 모드에서만, 아니면 ROUND_ROBIN 과 같음)
+    LEAST_IN_FLIGHT
+}
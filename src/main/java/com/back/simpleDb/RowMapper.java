@@ -0,0 +1,285 @@
+package com.back.simpleDb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  RowMapper 역할
+ *  1. (클래스, 컬럼 구성) 당 한 번만 리플렉션으로 필드를 찾아 MethodHandle setter 로 컴파일
+ *  2. 컬럼 순서 -> 필드 setter / ResultSet getter 종류를 미리 계산해둠
+ *  3. 컴파일된 매퍼는 ConcurrentHashMap 에 캐싱해서 재사용
+ *  4. 중간 Map 없이 ResultSet 에서 바로 객체를 채움
+ */
+class RowMapper<T> {
+
+    private record Key(Class<?> clazz, String[] labels) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && clazz == k.clazz && Arrays.equals(labels, k.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clazz.hashCode() + Arrays.hashCode(labels);
+        }
+    }
+
+    private static final Map<Key, RowMapper<?>> CACHE = new ConcurrentHashMap<>();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * 필드 타입별로 ResultSet 에서 어떤 getter 로 읽을지
+     */
+    private enum Kind {
+        LONG, INT, BOOLEAN, DOUBLE, STRING, LOCAL_DATE_TIME, OTHER
+    }
+
+    /**
+     * 컬럼 하나에 대한 바인딩 (대응되는 필드가 없으면 null)
+     * primitive 필드는 박싱 없이 넣도록 정확한 타입의 setter 를 따로 가짐
+     */
+    private record Binding(Kind kind, Class<?> type, MethodHandle setter, MethodHandle primitiveSetter) {}
+
+    private final MethodHandle constructor;
+    private final Binding[] bindings;
+
+    private RowMapper(MethodHandle constructor, Binding[] bindings) {
+        this.constructor = constructor;
+        this.bindings = bindings;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RowMapper<T> of(Class<T> clazz, String[] labels) {
+        return (RowMapper<T>) CACHE.computeIfAbsent(new Key(clazz, labels.clone()), key -> compile(clazz, key.labels));
+    }
+
+    private static <T> RowMapper<T> compile(Class<T> clazz, String[] labels) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            MethodHandle constructor = lookup.findConstructor(clazz, MethodType.methodType(void.class))
+                    .asType(CONSTRUCTOR_TYPE);
+
+            Binding[] bindings = new Binding[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                Field field = findField(clazz, toFieldName(labels[i]));
+                if (field == null) {
+                    continue;
+                }
+                Class<?> type = field.getType();
+                MethodHandle setter = lookup.unreflectSetter(field);
+                MethodHandle primitiveSetter = type.isPrimitive()
+                        ? setter.asType(MethodType.methodType(void.class, Object.class, type))
+                        : null;
+
+                bindings[i] = new Binding(kindOf(type), type, setter.asType(SETTER_TYPE), primitiveSetter);
+            }
+
+            return new RowMapper<>(constructor, bindings);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("매핑할 수 없는 클래스입니다: " + clazz, e);
+        }
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == long.class || type == Long.class) return Kind.LONG;
+        if (type == int.class || type == Integer.class) return Kind.INT;
+        if (type == boolean.class || type == Boolean.class) return Kind.BOOLEAN;
+        if (type == double.class || type == Double.class) return Kind.DOUBLE;
+        if (type == String.class) return Kind.STRING;
+        if (type == LocalDateTime.class) return Kind.LOCAL_DATE_TIME;
+        return Kind.OTHER;
+    }
+
+    private static Field findField(Class<?> clazz, String fieldName) {
+        try {
+            return clazz.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ResultSet 의 현재 row 를 객체로 변환
+     * 컬럼마다 필드 타입에 맞는 getter(getLong, getBoolean ...)로 바로 읽는다.
+     */
+    @SuppressWarnings("unchecked")
+    T mapRow(ResultSet rs) throws SQLException {
+        try {
+            Object obj = constructor.invokeExact();
+
+            for (int i = 0; i < bindings.length; i++) {
+                Binding binding = bindings[i];
+                if (binding != null) {
+                    read(rs, i + 1, binding, obj);
+                }
+            }
+            return (T) obj;
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 이미 읽어둔 값 배열(컬럼 순서)로 객체를 채움 (조회 캐시에서 꺼낼 때)
+     */
+    @SuppressWarnings("unchecked")
+    T mapValues(Object[] values) {
+        try {
+            Object obj = constructor.invokeExact();
+
+            for (int i = 0; i < bindings.length; i++) {
+                Binding binding = bindings[i];
+                if (binding == null) {
+                    continue;
+                }
+                Object value = convertValue(binding.type, values[i]);
+                if (value == null) {
+                    setNull(binding, obj);
+                } else {
+                    binding.setter.invokeExact(obj, value);
+                }
+            }
+            return (T) obj;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void read(ResultSet rs, int index, Binding binding, Object obj) throws Throwable {
+        MethodHandle primitiveSetter = binding.primitiveSetter;
+
+        switch (binding.kind) {
+            case LONG -> {
+                long value = rs.getLong(index);
+                if (rs.wasNull()) {
+                    setNull(binding, obj);
+                } else if (primitiveSetter != null) {
+                    primitiveSetter.invokeExact(obj, value);
+                } else {
+                    binding.setter.invokeExact(obj, (Object) value);
+                }
+            }
+            case INT -> {
+                int value = rs.getInt(index);
+                if (rs.wasNull()) {
+                    setNull(binding, obj);
+                } else if (primitiveSetter != null) {
+                    primitiveSetter.invokeExact(obj, value);
+                } else {
+                    binding.setter.invokeExact(obj, (Object) value);
+                }
+            }
+            case BOOLEAN -> {
+                boolean value = rs.getBoolean(index);
+                if (rs.wasNull()) {
+                    setNull(binding, obj);
+                } else if (primitiveSetter != null) {
+                    primitiveSetter.invokeExact(obj, value);
+                } else {
+                    binding.setter.invokeExact(obj, (Object) value);
+                }
+            }
+            case DOUBLE -> {
+                double value = rs.getDouble(index);
+                if (rs.wasNull()) {
+                    setNull(binding, obj);
+                } else if (primitiveSetter != null) {
+                    primitiveSetter.invokeExact(obj, value);
+                } else {
+                    binding.setter.invokeExact(obj, (Object) value);
+                }
+            }
+            case STRING -> binding.setter.invokeExact(obj, (Object) rs.getString(index));
+            case LOCAL_DATE_TIME -> binding.setter.invokeExact(obj, (Object) rs.getObject(index, LocalDateTime.class));
+            default -> {
+                Object value = convertValue(binding.type, rs.getObject(index));
+                if (value == null) {
+                    setNull(binding, obj);
+                } else {
+                    binding.setter.invokeExact(obj, value);
+                }
+            }
+        }
+    }
+
+    private static void setNull(Binding binding, Object obj) throws Throwable {
+        // primitive 필드는 기본값 유지
+        if (binding.primitiveSetter == null) {
+            binding.setter.invokeExact(obj, (Object) null);
+        }
+    }
+
+    /**
+     * snake_case_column
+     * to
+     * camelCaseColumn
+     */
+    static String toFieldName(String column) {
+        if(!column.contains("_"))
+            return column;
+
+        StringBuilder sb = new StringBuilder();
+        String[] splits = column.split("_");
+
+        sb.append(splits[0].toLowerCase());
+
+        for (int i = 1; i < splits.length; i++) {
+            String str = splits[i];
+            sb.append(Character.toUpperCase(str.charAt(0)));
+            sb.append(str.substring(1).toLowerCase());
+        }
+
+        return sb.toString();
+    }
+
+    static Object convertValue(Class<?> type, Object value) {
+        if (value == null)
+            return null;
+
+        if (type.isAssignableFrom(value.getClass())) {
+            return value;
+        }
+
+        if (type == long.class || type == Long.class) {
+            return ((Number) value).longValue();
+        }
+
+        if (type == int.class || type == Integer.class) {
+            return ((Number) value).intValue();
+        }
+
+        if (type == double.class || type == Double.class) {
+            return ((Number) value).doubleValue();
+        }
+
+        if (type == boolean.class || type == Boolean.class) {
+            if (value instanceof Boolean b) return b;
+            if (value instanceof Number n) return n.intValue() != 0;
+        }
+
+        if (type == String.class) {
+            return value.toString();
+        }
+
+        if (type == LocalDateTime.class && value instanceof Timestamp ts) {
+            return ts.toLocalDateTime();
+        }
+
+        throw new RuntimeException("변환 불가: " + value + " → " + type);
+    }
+}
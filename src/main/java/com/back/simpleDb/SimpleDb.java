@@ -1,8 +1,25 @@
 package com.back.simpleDb;
 
+import lombok.Getter;
 import lombok.Setter;
 
 import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  *  SimpleDb 역할
@@ -11,19 +28,265 @@ import java.sql.*;
  *  3. 트랜잭션 상태 관리
  */
 public class SimpleDb {
-    private final String url;
-    private final String username;
-    private final String password;
+    private static final long DEFAULT_MAX_ALLOWED_PACKET = 4L * 1024 * 1024;
+    private static final String ALL_TABLES = QueryCache.UNKNOWN_TABLES;
+    // 기본 비동기 executor(JDK 21 미만)의 스레드 하나당 대기 큐 크기
+    private static final int ASYNC_QUEUE_PER_THREAD = 32;
+
+    // 물리 커넥션을 새로 만드는 방법 (기본은 DriverManager + MySQL URL)
+    private final ConnectionPool.ConnectionFactory connectionFactory;
+    private final Dialect dialect;
+    // 지금까지 만든 물리 커넥션 수 (풀 / 비풀 모드 비교용)
+    private final LongAdder createdConnections = new LongAdder();
 
     @Setter
     private boolean devMode;
 
+    // 커넥션 풀 설정 (첫 getConnection() 전에 설정해야 반영됨)
+    @Setter
+    private boolean pooled = true;
+    @Setter
+    private int poolMinSize = 2;
+    @Setter
+    private int poolMaxSize = 10;
+    @Setter
+    private long poolAcquireTimeoutMillis = 30_000L;
+    @Setter
+    private long poolIdleTimeoutMillis = 600_000L;
+    @Setter
+    private long poolMaxLifetimeMillis = 1_800_000L;
+    // 커넥션당 캐싱할 PreparedStatement 개수 (0 이면 캐시 사용 안함)
+    @Setter
+    private int statementCacheSize = 256;
+
+    // 스트리밍 조회 시 한 번에 가져올 row 수 (useCursorFetch)
+    @Setter
+    @Getter
+    private int streamFetchSize = 1000;
+
+    // 배치 실행 시 executeBatch() 를 보내는 단위
+    @Setter
+    @Getter
+    private int batchFlushSize = 1000;
+
+    // appendIn(Collection / long[]) 값이 이보다 많으면 임시 테이블로 조회 (0 이면 항상 placeholder)
+    @Setter
+    @Getter
+    private int inListTableThreshold = 1000;
+
+    private volatile ConnectionPool pool;
+
+    // 조회 전용 replica (트랜잭션 밖의 select 만 보냄, 첫 조회 전에 추가해야 함)
+    private final List<ConnectionPool.ConnectionFactory> replicaFactories = new CopyOnWriteArrayList<>();
+    @Setter
+    private ReplicaRouting replicaRouting = ReplicaRouting.ROUND_ROBIN;
+    // 이 스레드가 primary 에 쓴 뒤 이 시간 동안은 조회도 primary 로 (replica 지연 대비, 0 이면 사용 안함)
+    @Setter
+    private long readYourWritesWindowMillis = 1000L;
+    private volatile ReplicaRouter replicaRouter;
+    private final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+    // 스레드와 무관하게 마지막으로 primary 에 쓴 시각 (캐시를 replica 의 지연된 데이터로 채우지 않도록)
+    private volatile long lastAnyWriteNanos;
+    private volatile boolean anyWrite;
+
+    // 조회 결과 캐시 설정 (Sql.cached() 로 opt-in 한 조회만 캐싱)
+    @Setter
+    private int queryCacheMaxSize = 1000;
+    @Setter
+    private long queryCacheTtlMillis = 60_000L;
+    private volatile QueryCache queryCache;
+
+    // 트랜잭션 안에서 쓰기가 일어난 테이블 (커밋 시 캐시 무효화, 있는 동안은 캐시 우회)
+    private final ThreadLocal<Set<String>> txWrittenTables = new ThreadLocal<>();
+
+    // 비동기 쿼리(...Async)를 실행할 executor, 지정하지 않으면 JDK 21+ 는 가상 스레드, 그 아래는 poolMaxSize 크기 스레드 풀
+    @Setter
+    private Executor asyncExecutor;
+    private ExecutorService defaultAsyncExecutor;
+
+    // 쿼리 로그 설정 (writer 를 지정하거나 devMode 면 활성화, 첫 쿼리 전에 설정)
+    @Setter
+    private QueryLogWriter queryLogWriter;
+    @Setter
+    private ParamRedactor queryLogRedactor = ParamRedactor.NONE;
+    @Setter
+    private double queryLogSampleRate = 1.0;
+    @Setter
+    private int queryLogCapacity = 8192;
+    private volatile QueryLog queryLog;
+
+    // 느린 쿼리 기록 설정 (임계값이 0 이면 사용 안함, capacity / explain 은 처음 기록하기 전에 설정)
+    @Setter
+    private long slowQueryThresholdMillis = 0;
+    @Setter
+    private int slowQueryCapacity = 100;
+    // 느린 쿼리를 별도 커넥션에서 EXPLAIN 해서 plan 을 붙일지
+    @Setter
+    private boolean slowQueryExplain = false;
+    private volatile SlowQueryLog slowQueryLog;
+
+    // SQL fingerprint / 구간별 지연시간 히스토그램
+    @Getter
+    private final SqlMetrics metrics = new SqlMetrics();
+    @Setter
+    private boolean metricsEnabled = true;
+    // 시작했지만 아직 끝나지 않은 구간 (에러가 난 구간을 기록하기 위함)
+    private final ThreadLocal<SqlPhase> openPhase = new ThreadLocal<>();
+
+    // 서버의 max_allowed_packet (처음 필요할 때 한 번 조회)
+    private volatile long maxAllowedPacket;
+
     private final ThreadLocal<Connection> txConn = new ThreadLocal<>();
+    // 중첩 트랜잭션의 savepoint (바깥 트랜잭션이면 비어 있음)
+    private final ThreadLocal<Deque<Savepoint>> txSavepoints = new ThreadLocal<>();
+    // 바깥 트랜잭션의 read only / 격리 수준
+    // (끝날 때 원래대로 되돌리는 건 커넥션 풀이 반납 시점에 함, 비풀 모드는 커넥션을 닫음)
+    private final ThreadLocal<TxSettings> txSettings = new ThreadLocal<>();
+
+    private record TxSettings(boolean readOnly, TransactionIsolation isolation) {}
+
+    // inTransaction 재시도 설정 (deadlock / lock wait timeout 이면 트랜잭션 전체를 다시 실행)
+    @Setter
+    private int transactionMaxAttempts = 3;
+    @Setter
+    private long transactionRetryBaseDelayMillis = 20L;
+    @Setter
+    private long transactionRetryMaxDelayMillis = 1000L;
 
     public SimpleDb(String host, String username, String password, String dbName) {
-        this.url = String.format("jdbc:mysql://%s:3306/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=Asia/Seoul", host, dbName);
-        this.username = username;
-        this.password = password;
+        this(Dialect.MYSQL, Dialect.MYSQL.jdbcUrl(host, Dialect.MYSQL.defaultPort(), dbName), username, password);
+    }
+
+    private SimpleDb(Dialect dialect, String url, String username, String password) {
+        this(() -> DriverManager.getConnection(url, username, password), dialect);
+    }
+
+    /**
+     * 커넥션 생성 방법을 직접 지정 (벤치마크의 가짜 JDBC 등)
+     */
+    SimpleDb(ConnectionPool.ConnectionFactory connectionFactory) {
+        this(connectionFactory, Dialect.MYSQL);
+    }
+
+    SimpleDb(ConnectionPool.ConnectionFactory connectionFactory, Dialect dialect) {
+        this.connectionFactory = connectionFactory;
+        this.dialect = dialect;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 외부 DB 없이 쓰는 in-process H2 (MySQL 호환 모드)
+     * 같은 이름이면 같은 DB (마지막 커넥션이 닫혀도 JVM 이 끝날 때까지 유지)
+     */
+    public static SimpleDb embedded(String dbName) {
+        return builder()
+                .dialect(Dialect.H2)
+                .url("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1;%s".formatted(dbName, Dialect.H2_OPTIONS))
+                .username("sa")
+                .build();
+    }
+
+    /**
+     * SimpleDb.builder().dialect(Dialect.MYSQL).host("db").port(3307).dbName("app").username("root").password("...").build()
+     * url 을 지정하면 host / port / dbName 대신 그대로 사용
+     */
+    public static class Builder {
+        private Dialect dialect = Dialect.MYSQL;
+        private String host = "localhost";
+        private int port;
+        private String dbName;
+        private String url;
+        private String username;
+        private String password = "";
+        private final List<String> replicaHosts = new ArrayList<>();
+        private final List<String> replicaUrls = new ArrayList<>();
+
+        private Builder() {}
+
+        public Builder dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder dbName(String dbName) {
+            this.dbName = dbName;
+            return this;
+        }
+
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder username(String username) {
+            this.username = username;
+            return this;
+        }
+
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * 조회용 replica, port / dbName / username / password 는 primary 와 같게 사용
+         */
+        public Builder replica(String host) {
+            this.replicaHosts.add(host);
+            return this;
+        }
+
+        public Builder replicaUrl(String url) {
+            this.replicaUrls.add(url);
+            return this;
+        }
+
+        public SimpleDb build() {
+            String jdbcUrl = url;
+            if (jdbcUrl == null) {
+                if (dbName == null) {
+                    throw new IllegalStateException("url 또는 dbName 을 지정해야 합니다.");
+                }
+                jdbcUrl = dialect.jdbcUrl(host, port > 0 ? port : dialect.defaultPort(), dbName);
+            }
+            SimpleDb simpleDb = new SimpleDb(dialect, jdbcUrl, username, password);
+
+            List<String> urls = new ArrayList<>(replicaUrls);
+            for (String replicaHost : replicaHosts) {
+                if (dbName == null) {
+                    throw new IllegalStateException("replica(host) 를 쓰려면 dbName 을 지정해야 합니다.");
+                }
+                urls.add(dialect.jdbcUrl(replicaHost, port > 0 ? port : dialect.defaultPort(), dbName));
+            }
+            for (String replicaUrl : urls) {
+                simpleDb.addReplica(() -> DriverManager.getConnection(replicaUrl, username, password));
+            }
+            return simpleDb;
+        }
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * MySQL 문법으로 작성된 SQL 을 현재 DB 에서 실행할 SQL 로 변환
+     */
+    String nativeSql(String sql) {
+        return dialect.nativeSql(sql);
     }
 
     Connection getConnection() throws SQLException {
@@ -32,92 +295,880 @@ public class SimpleDb {
             return conn;
         }
 
-        return DriverManager.getConnection(url, username, password);
+        long phaseStart = startPhase(SqlPhase.ACQUIRE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.ACQUIRE);
+        Connection borrowed = borrowConnection();
+        endPhase(SqlPhase.ACQUIRE, phaseStart, phaseEvent, "");
+        return borrowed;
+    }
+
+    /**
+     * 조회용 커넥션
+     * 트랜잭션 안이면 트랜잭션 커넥션, replica 가 없거나 read-your-writes 구간이면 primary
+     * replica 에 연결하지 못하면 primary 에서 조회
+     */
+    Connection getReadConnection() throws SQLException {
+        return getReadConnection(false);
+    }
+
+    /**
+     * primaryOnly 면 트랜잭션 밖이어도 primary 에서 조회 (조회 캐시를 채울 때)
+     */
+    Connection getReadConnection(boolean primaryOnly) throws SQLException {
+        Connection conn = txConn.get();
+        if (conn != null) {
+            return conn;
+        }
+        if (primaryOnly || !canUseReplica()) {
+            return getConnection();
+        }
+
+        long phaseStart = startPhase(SqlPhase.ACQUIRE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.ACQUIRE);
+        Connection borrowed = borrowReplicaConnection();
+        endPhase(SqlPhase.ACQUIRE, phaseStart, phaseEvent, "");
+        return borrowed;
+    }
+
+    private boolean canUseReplica() {
+        return !replicaFactories.isEmpty() && !isWithinReadYourWritesWindow();
+    }
+
+    private Connection borrowReplicaConnection() throws SQLException {
+        try {
+            return getReplicaRouter().borrow();
+        } catch (SQLException e) {
+            return borrowConnection();
+        }
+    }
+
+    /**
+     * 조회용 replica 추가 (첫 조회 전에만 가능)
+     */
+    synchronized void addReplica(ConnectionPool.ConnectionFactory factory) {
+        if (replicaRouter != null) {
+            throw new IllegalStateException("조회가 시작된 뒤에는 replica 를 추가할 수 없습니다.");
+        }
+        replicaFactories.add(factory);
+    }
+
+    private ReplicaRouter getReplicaRouter() {
+        ReplicaRouter router = replicaRouter;
+        if (router != null) {
+            return router;
+        }
+        synchronized (this) {
+            if (replicaRouter == null) {
+                List<ConnectionPool.ConnectionFactory> factories = new ArrayList<>();
+                for (ConnectionPool.ConnectionFactory factory : replicaFactories) {
+                    factories.add(() -> createConnection(factory));
+                }
+                replicaRouter = new ReplicaRouter(factories, replicaRouting, pooled ? this::newPool : null);
+            }
+            return replicaRouter;
+        }
+    }
+
+    /**
+     * replica 별 조회 커넥션을 빌려준 횟수 (추가한 순서, replica 가 없으면 빈 배열)
+     */
+    long[] getReplicaBorrowedCounts() {
+        ReplicaRouter router = replicaRouter;
+        return router == null ? new long[0] : router.getBorrowedCounts();
+    }
+
+    private boolean isWithinReadYourWritesWindow() {
+        Long writtenAt = lastWriteNanos.get();
+        return writtenAt != null
+                && System.nanoTime() - writtenAt < TimeUnit.MILLISECONDS.toNanos(readYourWritesWindowMillis);
+    }
+
+    /**
+     * 이 스레드가 primary 에 쓴 시각 기록 (replica 를 쓸 때만)
+     */
+    private void markWrite() {
+        if (!replicaFactories.isEmpty() && readYourWritesWindowMillis > 0) {
+            long now = System.nanoTime();
+            lastWriteNanos.set(now);
+            lastAnyWriteNanos = now;
+            anyWrite = true;
+        }
+    }
+
+    /**
+     * 어느 스레드든 readYourWritesWindowMillis 안에 primary 에 쓴 적이 있는지 (replica 가 있을 때만)
+     * 그 동안 replica 에서 읽은 결과는 무효화 이전의 데이터일 수 있으므로 캐싱하면 안 됨
+     */
+    boolean hasRecentWrite() {
+        return anyWrite
+                && System.nanoTime() - lastAnyWriteNanos < TimeUnit.MILLISECONDS.toNanos(readYourWritesWindowMillis);
+    }
+
+    /**
+     * pooled 모드면 풀에서 빌리고, 아니면 매번 새로 연결
+     * 어느 쪽이든 close() 하면 정리됨 (풀 커넥션은 반납)
+     */
+    private Connection borrowConnection() throws SQLException {
+        if (!pooled) {
+            return createConnection();
+        }
+        return getPool().borrow();
+    }
+
+    private Connection createConnection() throws SQLException {
+        return createConnection(connectionFactory);
+    }
+
+    private Connection createConnection(ConnectionPool.ConnectionFactory factory) throws SQLException {
+        Connection conn = factory.create();
+        createdConnections.increment();
+
+        List<String> initSql = dialect.initSql();
+        if (!initSql.isEmpty()) {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : initSql) {
+                    stmt.execute(sql);
+                }
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    long getCreatedConnectionCount() {
+        return createdConnections.sum();
+    }
+
+    /**
+     * 풀이 열어둔 물리 커넥션 수 (비풀 모드면 0)
+     */
+    int getOpenConnectionCount() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getTotalCount();
+    }
+
+    private ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p != null) {
+            return p;
+        }
+        synchronized (this) {
+            if (pool == null) {
+                pool = newPool(this::createConnection);
+            }
+            return pool;
+        }
+    }
+
+    private ConnectionPool newPool(ConnectionPool.ConnectionFactory factory) {
+        return new ConnectionPool(
+                factory,
+                poolMinSize, poolMaxSize,
+                poolAcquireTimeoutMillis, poolIdleTimeoutMillis, poolMaxLifetimeMillis,
+                statementCacheSize);
     }
 
     boolean isInTransaction() {
         return txConn.get() != null;
     }
 
-    public void run(String sql) {
-        if (devMode) {
-            System.out.println("SQL: " + sql);
+    QueryCache getQueryCache() {
+        QueryCache cache = queryCache;
+        if (cache != null) {
+            return cache;
         }
+        synchronized (this) {
+            if (queryCache == null) {
+                queryCache = new QueryCache(queryCacheMaxSize, queryCacheTtlMillis);
+            }
+            return queryCache;
+        }
+    }
 
-        // try-with-resources를 사용하여 Connection과 Statement를 자동으로 닫습니다.
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
+    /**
+     * 트랜잭션 안에서는 캐시를 읽지도 채우지도 않음
+     * (커밋 전 쓰기가 보일 수 있고, REPEATABLE READ 스냅샷 결과가 공유 캐시에 들어가면 다른 스레드가 옛 값을 봄)
+     */
+    boolean canUseQueryCache() {
+        return txConn.get() == null;
+    }
 
-            stmt.execute(sql);
+    /**
+     * 쓰기 실행 후 호출
+     * 트랜잭션 밖이면 바로 무효화, 안이면 커밋할 때 무효화
+     */
+    void afterWrite(String sql) {
+        if (queryCache == null) {
+            markWrite();
+            return;
+        }
+        afterWrite(QueryCache.tablesOf(sql));
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+    void afterWrite(Set<String> tables) {
+        markWrite();
+
+        QueryCache cache = queryCache;
+        if (cache == null) {
+            return;
+        }
+
+        if (!isInTransaction()) {
+            cache.invalidate(tables);
+            return;
         }
+
+        Set<String> written = txWrittenTables.get();
+        if (written == null) {
+            written = new HashSet<>();
+            txWrittenTables.set(written);
+        }
+        // 테이블을 알 수 없는 쓰기는 커밋 시 전체 무효화
+        written.addAll(tables.isEmpty() ? Set.of(ALL_TABLES) : tables);
+    }
+
+    private void endTransactionWrites(boolean committed) {
+        Set<String> written = txWrittenTables.get();
+        txWrittenTables.remove();
+
+        QueryCache cache = queryCache;
+        if (!committed || cache == null || written == null || written.isEmpty()) {
+            return;
+        }
+        cache.invalidate(written.contains(ALL_TABLES) ? Set.of() : written);
+    }
+
+    /**
+     * Sql 과 같은 실행 경로 사용 (커넥션 대여/반납, 트랜잭션 커넥션 유지, statement 캐시, 메트릭, 로그)
+     */
+    public void run(String sql) {
+        genSql().append(sql).run();
     }
 
     public void run(String sql, Object... params) {
-        if (devMode) {
-            System.out.println("SQL: " + sql);
-            System.out.println("  params: ");
-            for (int i = 0; i < params.length; i++) {
-                System.out.println("    $" + (i + 1) + " = " + params[i]);
+        genSql().append(sql, params).run();
+    }
+
+    /**
+     * 구간 시작, 메트릭용 시작 시각을 돌려줌
+     * JFR 이벤트는 SqlEvents.begin(phase) 로 따로 (JFR 이 꺼져 있으면 null -> 구간마다 객체를 만들지 않음)
+     */
+    long startPhase(SqlPhase phase) {
+        openPhase.set(phase);
+        return System.nanoTime();
+    }
+
+    void endPhase(SqlPhase phase, long startNanos, SqlEvents.PhaseEvent event, String sql) {
+        endPhase(phase, startNanos, event, sql, -1, null);
+    }
+
+    void endPhase(SqlPhase phase, long startNanos, SqlEvents.PhaseEvent event, String sql, long rowCount) {
+        endPhase(phase, startNanos, event, sql, rowCount, null);
+    }
+
+    /**
+     * 구간 끝, 메트릭 히스토그램에 기록하고 JFR 이 켜져 있으면 이벤트 commit
+     * sql 이 빈 문자열이면 SQL 과 무관한 구간 (커넥션 획득)
+     */
+    void endPhase(SqlPhase phase, long startNanos, SqlEvents.PhaseEvent event, String sql,
+                  long rowCount, Class<?> mappedType) {
+        // remove 대신 null -> ThreadLocal 엔트리를 매번 새로 만들지 않음
+        openPhase.set(null);
+        if (metricsEnabled) {
+            metrics.record(sql, phase, System.nanoTime() - startNanos);
+        }
+
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.fingerprint = metrics.fingerprintOf(sql);
+            event.rowCount = rowCount;
+            event.mappedType = mappedType;
+            event.commit();
+        }
+    }
+
+    /**
+     * 끝나지 않은 구간(커넥션 획득 / prepare / execute / map)에서 난 에러로 기록
+     * 구간 밖에서 난 에러(콜백 등)는 execute 로 기록
+     */
+    void recordError(String sql) {
+        SqlPhase phase = openPhase.get();
+        openPhase.set(null);
+        if (metricsEnabled) {
+            metrics.recordError(sql, phase != null ? phase : SqlPhase.EXECUTE);
+        }
+    }
+
+    /**
+     * 실행된 쿼리 한 건을 쿼리 로그에 남김
+     * writer 를 지정하지 않았고 devMode 도 아니면 아무것도 하지 않음
+     * elapsedNanos 는 커넥션 획득 대기(acquireNanos) 포함 전체 시간
+     * 느린 쿼리 판단은 획득 대기를 뺀 실행 시간으로 (풀이 모자란 것은 쿼리가 느린 것이 아님)
+     */
+    void recordQuery(String operation, String sql, List<Object> params, long elapsedNanos, long acquireNanos,
+                     long rowCount, Throwable error) {
+        QueryLog log = getQueryLog();
+        if (log != null) {
+            log.record(operation, sql, params, elapsedNanos, rowCount, error);
+        }
+
+        long threshold = slowQueryThresholdMillis;
+        long executeNanos = elapsedNanos - acquireNanos;
+        if (threshold > 0 && error == null && executeNanos >= TimeUnit.MILLISECONDS.toNanos(threshold)) {
+            getSlowQueryLog().record(operation, sql, params, executeNanos, acquireNanos, rowCount);
+        }
+    }
+
+    private SlowQueryLog getSlowQueryLog() {
+        SlowQueryLog log = slowQueryLog;
+        if (log != null) {
+            return log;
+        }
+        synchronized (this) {
+            if (slowQueryLog == null) {
+                slowQueryLog = new SlowQueryLog(slowQueryCapacity, queryLogRedactor,
+                        slowQueryExplain ? this::borrowConnection : null, this::nativeSql);
             }
+            return slowQueryLog;
         }
+    }
 
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * 임계값(slowQueryThresholdMillis)을 넘은 최근 쿼리들, 오래된 것부터
+     * EXPLAIN 은 백그라운드에서 붙으므로 기록 직후에는 plan 이 비어 있을 수 있음
+     */
+    public List<SlowQuery> getSlowQueries() {
+        SlowQueryLog log = slowQueryLog;
+        return log == null ? List.of() : log.entries();
+    }
 
-            for (int i = 0; i < params.length; i++) {
-                pstmt.setObject(i + 1, params[i]);
+    public void clearSlowQueries() {
+        SlowQueryLog log = slowQueryLog;
+        if (log != null) {
+            log.clear();
+        }
+    }
+
+    private QueryLog getQueryLog() {
+        QueryLog log = queryLog;
+        if (log != null || (queryLogWriter == null && !devMode)) {
+            return log;
+        }
+        synchronized (this) {
+            if (queryLog == null) {
+                queryLog = new QueryLog(
+                        queryLogWriter != null ? queryLogWriter : QueryLogWriter.stdout(),
+                        queryLogRedactor, queryLogSampleRate, queryLogCapacity);
             }
+            return queryLog;
+        }
+    }
 
-            pstmt.executeUpdate();
+    /**
+     * 버퍼가 가득 차서 버려진 쿼리 로그 수
+     */
+    public long getDroppedQueryLogCount() {
+        QueryLog log = queryLog;
+        return log == null ? 0 : log.getDroppedCount();
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+    /**
+     * PreparedStatement 캐시 통계 (pooled 모드에서만 집계됨)
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            return new StatementCacheStats(0, 0, 0);
+        }
+        return p.getStatementCacheStats();
+    }
+
+    /**
+     * 같은 SQL 을 파라미터 묶음별로 배치 실행
+     * 묶음별 영향받은 row 수 반환
+     */
+    public int[] runBatch(String sql, List<Object[]> paramSets) {
+        Sql batch = genSql().append(sql);
+        for (Object[] params : paramSets) {
+            batch.addBatch(params);
         }
+        return batch.updateBatch();
+    }
+
+    /**
+     * 비동기 쿼리용 executor
+     * JDK 21 이상이면 가상 스레드 per task (스레드가 싸므로 개수 제한 없이 커넥션 획득에서 대기)
+     * JDK 17 ~ 20 은 가상 스레드가 없으므로 poolMaxSize 개의 daemon 스레드 + 크기 제한 큐
+     * (커넥션보다 많은 스레드는 어차피 획득 대기만 하므로 플랫폼 스레드를 무한정 만들지 않음)
+     */
+    synchronized Executor getAsyncExecutor() {
+        if (asyncExecutor != null) {
+            return asyncExecutor;
+        }
+        if (defaultAsyncExecutor == null) {
+            defaultAsyncExecutor = newDefaultAsyncExecutor(poolMaxSize);
+        }
+        return defaultAsyncExecutor;
+    }
+
+    /**
+     * 큐까지 가득 차면 CallerRunsPolicy -> 호출한 스레드가 직접 실행 (버리지 않고 호출 속도를 늦춤)
+     * 비동기 호출은 트랜잭션 밖에서만 가능하므로 호출 스레드에서 실행해도 트랜잭션 커넥션을 쓰지 않음
+     */
+    static ExecutorService newDefaultAsyncExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    threads, threads,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(threads * ASYNC_QUEUE_PER_THREAD),
+                    r -> {
+                        Thread t = new Thread(r, "simpleDb-async");
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            // 쓰지 않는 동안에는 스레드를 남겨두지 않음
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    /**
+     * multi-row INSERT 를 나눌 때 쓰는 서버의 max_allowed_packet
+     * 조회에 실패하면 MySQL 기본값(4MB)으로 간주
+     */
+    long getMaxAllowedPacket() {
+        long value = maxAllowedPacket;
+        if (value > 0) {
+            return value;
+        }
+
+        String sql = dialect.maxAllowedPacketSql();
+        if (sql == null) {
+            maxAllowedPacket = DEFAULT_MAX_ALLOWED_PACKET;
+            return DEFAULT_MAX_ALLOWED_PACKET;
+        }
+
+        try {
+            Long fetched = genSql().append(sql).selectLong();
+            value = fetched != null && fetched > 0 ? fetched : DEFAULT_MAX_ALLOWED_PACKET;
+        } catch (RuntimeException e) {
+            value = DEFAULT_MAX_ALLOWED_PACKET;
+        }
+        maxAllowedPacket = value;
+        return value;
     }
 
     public Sql genSql() {
         return new Sql(this);
     }
 
+    /**
+     * 자주 실행하는 고정 SQL 을 한 번만 준비해두고 파라미터만 바꿔 실행
+     */
+    public CompiledSql compile(String sql) {
+        return new CompiledSql(this, sql);
+    }
+
     public void close() {
     }
 
+    /**
+     * 커넥션 풀과 기본 비동기 executor 를 종료하고 idle 커넥션을 모두 닫는다.
+     * 남아있는 쿼리 로그도 이때 모두 씀
+     * 사용 중인 커넥션은 반납될 때 닫힘
+     */
+    public void shutdown() {
+        ConnectionPool p;
+        synchronized (this) {
+            p = pool;
+            pool = null;
+
+            if (defaultAsyncExecutor != null) {
+                defaultAsyncExecutor.shutdown();
+                defaultAsyncExecutor = null;
+            }
+        }
+        if (p != null) {
+            p.close();
+        }
+
+        ReplicaRouter router;
+        synchronized (this) {
+            router = replicaRouter;
+            replicaRouter = null;
+        }
+        if (router != null) {
+            router.close();
+        }
+
+        QueryLog log;
+        synchronized (this) {
+            log = queryLog;
+            queryLog = null;
+        }
+        if (log != null) {
+            log.close();
+        }
+
+        SlowQueryLog slowLog;
+        synchronized (this) {
+            slowLog = slowQueryLog;
+            slowQueryLog = null;
+        }
+        if (slowLog != null) {
+            slowLog.close();
+        }
+    }
+
+    /**
+     * work 를 트랜잭션 안에서 실행하고 커밋, 예외가 나면 롤백
+     * deadlock / lock wait timeout 이면 jitter 를 준 backoff 후 work 전체를 다시 실행 (최대 transactionMaxAttempts 번)
+     * 재시도될 수 있으므로 work 안에서 DB 밖의 부수효과는 피해야 함
+     * 이미 트랜잭션 안이면 savepoint 로 중첩, 실패하면 안쪽만 롤백하고 예외를 던짐 (재시도는 바깥 트랜잭션이 결정)
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return inTransaction(false, TransactionIsolation.DEFAULT, work);
+    }
+
+    public <T> T inTransaction(TransactionIsolation isolation, Supplier<T> work) {
+        return inTransaction(false, isolation, work);
+    }
+
+    /**
+     * startReadOnlyTransaction() 으로 실행하는 inTransaction
+     */
+    public <T> T inReadOnlyTransaction(Supplier<T> work) {
+        return inTransaction(true, TransactionIsolation.DEFAULT, work);
+    }
+
+    private <T> T inTransaction(boolean readOnly, TransactionIsolation isolation, Supplier<T> work) {
+        if (isInTransaction()) {
+            return inNestedTransaction(readOnly, isolation, work);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            startTransaction(readOnly, isolation);
+            int depth = getTransactionDepth();
+
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                rollbackQuietly(e, depth);
+                retryOrThrow(e, attempt);
+                continue;
+            } catch (Error e) {
+                rollbackQuietly(e, depth);
+                throw e;
+            }
+
+            try {
+                endTransactionAt(depth, true);
+                return result;
+            } catch (RuntimeException e) {
+                // commit() 은 실패해도 커넥션을 반납함
+                retryOrThrow(e, attempt);
+            }
+        }
+    }
+
+    private <T> T inNestedTransaction(boolean readOnly, TransactionIsolation isolation, Supplier<T> work) {
+        startTransaction(readOnly, isolation);
+        int depth = getTransactionDepth();
+
+        T result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            rollbackQuietly(e, depth);
+            throw e;
+        }
+        endTransactionAt(depth, true);
+        return result;
+    }
+
+    /**
+     * inTransaction 이 연 depth 의 트랜잭션을 끝냄
+     * work 가 startTransaction() 만 하고 닫지 않은 안쪽 savepoint 는 버림
+     * (depth 의 savepoint 를 커밋/롤백하면 그 뒤에 만든 savepoint 도 함께 해제 / 롤백됨)
+     * depth 가 1 이면 물리 트랜잭션 전체를 커밋/롤백하고 커넥션 반납
+     * work 가 이미 depth 보다 바깥까지 닫았으면 아무것도 하지 않음
+     */
+    private void endTransactionAt(int depth, boolean commit) {
+        if (getTransactionDepth() < depth) {
+            return;
+        }
+        Deque<Savepoint> savepoints = txSavepoints.get();
+        while (savepoints != null && savepoints.size() > depth - 1) {
+            savepoints.pop();
+        }
+
+        if (commit) {
+            commit();
+        } else {
+            rollback();
+        }
+    }
+
+    public void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private void rollbackQuietly(Throwable cause, int depth) {
+        try {
+            endTransactionAt(depth, false);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 재시도할 수 있으면 backoff 만큼 기다렸다가 돌아가고, 아니면 e 를 그대로 던짐
+     */
+    private void retryOrThrow(RuntimeException e, int attempt) {
+        if (!isRetryable(e)) {
+            throw e;
+        }
+        if (attempt >= transactionMaxAttempts) {
+            metrics.recordTransactionRetriesExhausted();
+            throw e;
+        }
+
+        metrics.recordTransactionRetry();
+        SqlEvents.commit(SqlEvents.beginTransaction("retry", 1), true);
+
+        // full jitter: 0 ~ min(max, base * 2^(attempt-1))
+        long cap = Math.min(transactionRetryMaxDelayMillis, transactionRetryBaseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+        if (delay == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && dialect.isRetryable(sqlException)) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
     /**
      * transaction 시작 시, 해당 스레드에 있는 연결정보를 ThreadLocal에 넣음
+     * 이미 트랜잭션 안이면 savepoint 를 만들어 중첩 트랜잭션으로 시작
+     * -> 안쪽 rollback() 은 savepoint 까지만 되돌리고 바깥 트랜잭션은 계속 진행
+     * startTransaction() 마다 commit() / rollback() 을 한 번씩 짝지어 호출해야 함
      */
     public void startTransaction() {
-        if (isInTransaction()) {
-            throw new IllegalStateException("이미 트랜잭션이 시작된 상태입니다.");
+        startTransaction(false, TransactionIsolation.DEFAULT);
+    }
+
+    /**
+     * 격리 수준을 지정해서 시작 (예: 큰 리포트 조회는 READ_COMMITTED 로 gap lock / 오래된 snapshot 을 피함)
+     * 트랜잭션이 끝나면 커넥션의 원래 격리 수준으로 되돌림
+     */
+    public void startTransaction(TransactionIsolation isolation) {
+        startTransaction(false, isolation);
+    }
+
+    /**
+     * READ ONLY 트랜잭션 (InnoDB 는 트랜잭션 id 를 발급하지 않아 가벼움)
+     * replica 가 있으면 replica 에서 실행 (read-your-writes 구간이면 primary)
+     * 안에서 쓰기를 하면 DB 가 에러를 돌려줌
+     */
+    public void startReadOnlyTransaction() {
+        startTransaction(true, TransactionIsolation.DEFAULT);
+    }
+
+    public void startReadOnlyTransaction(TransactionIsolation isolation) {
+        startTransaction(true, isolation);
+    }
+
+    private void startTransaction(boolean readOnly, TransactionIsolation isolation) {
+        Connection current = txConn.get();
+        if (current != null) {
+            checkNestedSettings(readOnly, isolation);
+            startNestedTransaction(current);
+            return;
         }
+        SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("begin", 1);
+        boolean started = false;
+        Connection conn = null;
         try {
-            Connection conn = DriverManager.getConnection(url, username, password);
+            conn = readOnly && canUseReplica() ? borrowReplicaConnection() : borrowConnection();
+
+            // 트랜잭션이 시작되기 전(autoCommit 끄기 전)에 설정해야 적용됨
+            if (isolation != TransactionIsolation.DEFAULT) {
+                conn.setTransactionIsolation(isolation.level);
+            }
+            if (readOnly) {
+                conn.setReadOnly(true);
+            }
             conn.setAutoCommit(false);
 
             txConn.set(conn);
+            txSettings.set(new TxSettings(readOnly, isolation));
+            started = true;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { conn.close(); } catch (SQLException ignore) {}
+            }
+            throw new RuntimeException(e);
+        } finally {
+            SqlEvents.commit(event, started);
+        }
+    }
+
+    /**
+     * 중첩 트랜잭션(savepoint)은 바깥 트랜잭션의 설정을 바꿀 수 없음
+     */
+    private void checkNestedSettings(boolean readOnly, TransactionIsolation isolation) {
+        TxSettings outer = txSettings.get();
+        if (outer == null) {
+            return;
+        }
+        if (outer.readOnly && !readOnly) {
+            throw new IllegalStateException("READ ONLY 트랜잭션 안에서 쓰기 트랜잭션을 시작할 수 없습니다.");
+        }
+        if (isolation != TransactionIsolation.DEFAULT && isolation != outer.isolation) {
+            throw new IllegalStateException("중첩 트랜잭션에서는 격리 수준을 바꿀 수 없습니다: " + outer.isolation + " -> " + isolation);
+        }
+    }
+
+    boolean isInReadOnlyTransaction() {
+        TxSettings settings = txSettings.get();
+        return settings != null && settings.readOnly;
+    }
+
+    private void startNestedTransaction(Connection conn) {
+        Deque<Savepoint> savepoints = txSavepoints.get();
+        if (savepoints == null) {
+            savepoints = new ArrayDeque<>();
+            txSavepoints.set(savepoints);
+        }
+
+        int depth = savepoints.size() + 1;
+        SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("savepoint", depth);
+        boolean succeeded = false;
+        try {
+            savepoints.push(conn.setSavepoint("simpledb_sp_" + depth));
+            succeeded = true;
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            SqlEvents.commit(event, succeeded);
         }
     }
 
+    /**
+     * 중첩 트랜잭션 깊이 (트랜잭션 밖 0, 바깥 트랜잭션 1, savepoint 하나당 +1)
+     */
+    int getTransactionDepth() {
+        if (!isInTransaction()) {
+            return 0;
+        }
+        Deque<Savepoint> savepoints = txSavepoints.get();
+        return 1 + (savepoints == null ? 0 : savepoints.size());
+    }
+
+    /**
+     * 가장 안쪽 savepoint 를 꺼냄 (중첩 트랜잭션이 아니면 null)
+     */
+    private Savepoint popSavepoint() {
+        Deque<Savepoint> savepoints = txSavepoints.get();
+        return savepoints == null ? null : savepoints.poll();
+    }
+
     public void rollback() {
         Connection conn = txConn.get();
         if(conn == null)
             return;
 
+        Savepoint savepoint = popSavepoint();
+        if (savepoint != null) {
+            rollbackToSavepoint(conn, savepoint);
+            return;
+        }
+
+        SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("rollback", 1);
+        boolean rolledBack = false;
         try {
             conn.rollback();
+            rolledBack = true;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
+            SqlEvents.commit(event, rolledBack);
+            endTransactionWrites(false);
+            restoreAutoCommit(conn, rolledBack);
             try {
                 conn.close();
             } catch (SQLException ignore) {}
-             // transaction이 끝나면 connection close -> 해당 thread의 연결 정보도 삭제되어야 함
+             // transaction이 끝나면 connection 반납 -> 해당 thread의 연결 정보도 삭제되어야 함
             txConn.remove();
+            txSavepoints.remove();
+            txSettings.remove();
+        }
+    }
+
+    private static boolean tryRollback(Connection conn) {
+        try {
+            conn.rollback();
+            return true;
+        } catch (SQLException ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * 트랜잭션이 끝났을 때만 (커밋 / rollback 성공) autoCommit 을 켬
+     * 아니면 autoCommit 을 끈 채로 반납 -> 풀이 reset 에서 다시 rollback 하고, 그것도 실패하면 커넥션을 버림
+     */
+    private static void restoreAutoCommit(Connection conn, boolean transactionEnded) {
+        if (!transactionEnded) {
+            return;
+        }
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException ignore) {}
+    }
+
+    /**
+     * 안쪽 트랜잭션의 쓰기만 되돌림 (무효화할 테이블 목록은 바깥 커밋 때까지 그대로 둠)
+     */
+    private void rollbackToSavepoint(Connection conn, Savepoint savepoint) {
+        SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("rollback", getTransactionDepth() + 1);
+        boolean succeeded = false;
+        try {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            succeeded = true;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            SqlEvents.commit(event, succeeded);
         }
     }
 
@@ -126,17 +1177,49 @@ public class SimpleDb {
         if(conn == null)
             return;
 
+        // 안쪽 트랜잭션의 커밋은 savepoint 해제만, 실제 커밋은 바깥 트랜잭션에서
+        Savepoint savepoint = popSavepoint();
+        if (savepoint != null) {
+            SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("release", getTransactionDepth() + 1);
+            boolean succeeded = false;
+            try {
+                conn.releaseSavepoint(savepoint);
+                succeeded = true;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            } finally {
+                SqlEvents.commit(event, succeeded);
+            }
+            return;
+        }
+
+        boolean committed = false;
+        boolean rolledBack = false;
+        SqlEvents.TransactionEvent event = SqlEvents.beginTransaction("commit", 1);
         try {
             conn.commit();
+            committed = true;
 
         } catch (SQLException e) {
+            // 열린 트랜잭션에서 autoCommit 을 켜면 그 자리에서 커밋됨 -> 먼저 rollback
+            // (안 그러면 실패한 커밋이 반영되고, inTransaction 재시도가 같은 쓰기를 한 번 더 함)
+            rolledBack = tryRollback(conn);
             throw new RuntimeException(e);
         } finally {
+            SqlEvents.commit(event, committed);
+            endTransactionWrites(committed);
+            // 트랜잭션 중에 쓴 내용은 커밋 시점부터 replica 로 전파됨
+            if (committed && isWithinReadYourWritesWindow()) {
+                markWrite();
+            }
+            restoreAutoCommit(conn, committed || rolledBack);
             try {
                 conn.close();
             } catch (SQLException ignore) {}
-            // transaction이 끝나면 connection close -> 해당 thread의 연결 정보도 삭제되어야 함
+            // transaction이 끝나면 connection 반납 -> 해당 thread의 연결 정보도 삭제되어야 함
             txConn.remove();
+            txSavepoints.remove();
+            txSettings.remove();
         }
     }
 }
@@ -0,0 +1,34 @@
+package com.back.simpleDb;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 임계값보다 오래 걸린 쿼리 한 건
+ * params 는 redactor 를 거친 값, plan 은 EXPLAIN 결과 (아직 없거나 실패했으면 빈 List)
+ * elapsedNanos 는 커넥션 획득 대기를 뺀 실행 시간, 획득 대기는 acquireNanos 로 따로
+ */
+public record SlowQuery(
+        long timestampMillis,
+        String operation,
+        String sql,
+        List<Object> params,
+        long elapsedNanos,
+        long acquireNanos,
+        long rowCount,
+        List<Map<String, Object>> plan
+) {
+
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    public double acquireMillis() {
+        return acquireNanos / 1_000_000.0;
+    }
+
+    SlowQuery withPlan(List<Map<String, Object>> plan) {
+        return new SlowQuery(timestampMillis, operation, sql, params, elapsedNanos, acquireNanos, rowCount,
+                List.copyOf(plan));
+    }
+}
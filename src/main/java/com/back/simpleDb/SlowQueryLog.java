@@ -0,0 +1,171 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ *  SlowQueryLog 역할
+ *  1. 임계값을 넘은 쿼리(판단은 SimpleDb)를 최근 capacity 건까지만 보관 (오래된 것부터 버림)
+ *  2. explain 이 켜져 있으면 별도 커넥션에서 같은 SQL 로 EXPLAIN 을 실행해 plan 을 붙임
+ *  3. EXPLAIN 은 백그라운드 스레드 하나에서 실행, 밀려 있으면 건너뜀
+ */
+class SlowQueryLog {
+
+    private static final int EXPLAIN_QUEUE_SIZE = 64;
+
+    private final int capacity;
+    private final ParamRedactor redactor;
+    private final ConnectionPool.ConnectionFactory explainConnections;
+    private final UnaryOperator<String> nativeSql;
+    private final ArrayDeque<SlowQuery> entries = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    /**
+     * explainConnections 가 null 이면 EXPLAIN 을 실행하지 않음
+     */
+    SlowQueryLog(int capacity, ParamRedactor redactor,
+                 ConnectionPool.ConnectionFactory explainConnections, UnaryOperator<String> nativeSql) {
+        this.capacity = capacity;
+        this.redactor = redactor;
+        this.explainConnections = explainConnections;
+        this.nativeSql = nativeSql;
+
+        if (explainConnections == null) {
+            this.explainExecutor = null;
+        } else {
+            this.explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE), r -> {
+                        Thread t = new Thread(r, "simpleDb-slow-query-explain");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+    }
+
+    void record(String operation, String sql, List<Object> params, long elapsedNanos, long acquireNanos, long rowCount) {
+        SlowQuery entry = new SlowQuery(System.currentTimeMillis(), operation, sql,
+                redact(sql, params), elapsedNanos, acquireNanos, rowCount, List.of());
+        synchronized (this) {
+            entries.addLast(entry);
+            while (entries.size() > capacity) {
+                entries.removeFirst();
+            }
+        }
+
+        if (explainExecutor != null && isExplainable(sql)) {
+            Object[] explainParams = params.toArray();
+            try {
+                explainExecutor.execute(() -> attachPlan(entry, explain(sql, explainParams)));
+            } catch (RejectedExecutionException ignore) {
+                // EXPLAIN 이 밀려 있으면 plan 없이 남김
+            }
+        }
+    }
+
+    synchronized List<SlowQuery> entries() {
+        return new ArrayList<>(entries);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    void close() {
+        if (explainExecutor != null) {
+            explainExecutor.shutdownNow();
+        }
+    }
+
+    private List<Object> redact(String sql, List<Object> params) {
+        if (params.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> redacted = new ArrayList<>(params.size());
+        for (int i = 0; i < params.size(); i++) {
+            redacted.add(redactor.redact(sql, i + 1, params.get(i)));
+        }
+        return Collections.unmodifiableList(redacted);
+    }
+
+    /**
+     * MySQL 은 SELECT / INSERT / UPDATE / DELETE / REPLACE (+ WITH) 만 EXPLAIN 가능
+     */
+    static boolean isExplainable(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        return switch (head.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE", "WITH" -> true;
+            default -> false;
+        };
+    }
+
+    private List<Map<String, Object>> explain(String sql, Object[] params) {
+        try (Connection conn = explainConnections.create();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + nativeSql.apply(sql))) {
+
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<Map<String, Object>> plan = new ArrayList<>();
+
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        Object value = rs.getObject(i);
+                        if (value instanceof Timestamp ts) {
+                            value = ts.toLocalDateTime();
+                        }
+                        row.put(meta.getColumnLabel(i), value);
+                    }
+                    plan.add(row);
+                }
+                return plan;
+            }
+        } catch (SQLException | RuntimeException e) {
+            // EXPLAIN 실패는 무시 (plan 없이 남김)
+            return List.of();
+        }
+    }
+
+    private synchronized void attachPlan(SlowQuery entry, List<Map<String, Object>> plan) {
+        if (plan.isEmpty()) {
+            return;
+        }
+        // 그 사이 밀려나지 않았으면 같은 자리에서 교체
+        List<SlowQuery> rebuilt = new ArrayList<>(entries.size());
+        boolean found = false;
+        for (SlowQuery current : entries) {
+            if (current == entry) {
+                current = entry.withPlan(plan);
+                found = true;
+            }
+            rebuilt.add(current);
+        }
+        if (found) {
+            entries.clear();
+            entries.addAll(rebuilt);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.back.simpleDb;
 
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  *  Sql 역할
@@ -15,16 +20,36 @@ import java.util.function.Function;
  */
 public class Sql {
     private final SimpleDb simpleDb;
-    private final StringBuilder sql = new StringBuilder();
-    private final List<Object> params = new ArrayList<>();
+    private final StringBuilder sql;
+    private final List<Object> params;
+    private final List<Object[]> batchParams = new ArrayList<>();
+    private int batchSize;
+    private boolean cached;
+    // appendIn 값이 많아서 임시 테이블로 넘길 목록 (없으면 null)
+    private List<InListTable> inListTables;
+    // 캐시에 넣을 결과를 읽는 동안 replica 대신 primary 사용
+    private boolean readFromPrimary;
+    // CompiledSql.bind(...) 로 만들어졌으면 SQL 을 다시 만들지 않고 그대로 사용
+    private final CompiledSql compiled;
 
     public Sql(SimpleDb simpleDb) {
         this.simpleDb = simpleDb;
+        this.sql = new StringBuilder();
+        this.params = new ArrayList<>();
+        this.compiled = null;
+    }
+
+    Sql(SimpleDb simpleDb, CompiledSql compiled, Object[] params) {
+        this.simpleDb = simpleDb;
+        this.sql = null;
+        this.params = Arrays.asList(params);
+        this.compiled = compiled;
     }
 
     //Fluent API
     //this를 return
     public Sql append(String queryString) {
+        checkNotCompiled();
         if(queryString == null || queryString.isBlank())
             return this;
 
@@ -45,6 +70,7 @@ public class Sql {
     }
 
     public Sql appendIn(String queryString, Object... param) {
+        checkNotCompiled();
         if(queryString == null || queryString.isBlank())
             return this;
 
@@ -52,8 +78,7 @@ public class Sql {
         if (idx == -1) {
             throw new IllegalArgumentException("IN 절에 [ ? ] 가 없습니다.");
         }
-        String placeholder = String.join(", ", Collections.nCopies(param.length, "?"));
-        String replaced = queryString.replace("?", placeholder);
+        String replaced = queryString.replace("?", placeholders(param.length));
 
         if (!sql.isEmpty()) {
             sql.append(" ");
@@ -68,13 +93,315 @@ public class Sql {
         return this;
     }
 
+    /**
+     * 값이 많은 IN 목록용
+     * 1. placeholder 개수를 2의 거듭제곱으로 올리고 마지막 값으로 채움 (같은 SQL 이 재사용되도록)
+     * 2. 값이 SimpleDb.inListTableThreshold 보다 많으면 임시 테이블에 넣고 IN (SELECT v FROM 임시테이블) 로 바꿈
+     *    (정수 / 문자열만, 임시 테이블 DDL 이 열린 트랜잭션을 커밋할 수 있으므로 트랜잭션 밖에서만)
+     * 3. 비어 있으면 IN (NULL) -> 아무것도 매칭되지 않음
+     * 4. placeholder 로 처리해야 하는데 최대 개수를 넘으면 IllegalArgumentException
+     * IN (?) 형태에만 사용 (FIELD(...) 처럼 순서 / 개수가 의미 있는 곳에는 appendIn(String, Object...) 사용)
+     */
+    public Sql appendIn(String queryString, Collection<?> values) {
+        return appendInList(queryString, values.toArray());
+    }
+
+    public Sql appendIn(String queryString, long[] values) {
+        Object[] boxed = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return appendInList(queryString, boxed);
+    }
+
+    private Sql appendInList(String queryString, Object[] values) {
+        checkNotCompiled();
+        if (queryString == null || queryString.isBlank())
+            return this;
+
+        if (queryString.indexOf('?') == -1) {
+            throw new IllegalArgumentException("IN 절에 [ ? ] 가 없습니다.");
+        }
+
+        if (values.length == 0) {
+            return append(queryString.replace("?", "NULL"));
+        }
+
+        int threshold = simpleDb.getInListTableThreshold();
+        boolean overThreshold = threshold > 0 && values.length > threshold;
+        String columnType = overThreshold && !simpleDb.isInTransaction() ? InListTable.columnTypeOf(values) : null;
+        if (columnType != null) {
+            if (inListTables == null) {
+                inListTables = new ArrayList<>();
+            }
+            String table = "simpledb_in_" + inListTables.size();
+            inListTables.add(new InListTable(table, columnType, values));
+            return append(queryString.replace("?", "SELECT v FROM " + table));
+        }
+
+        if (values.length > MultiRowInsert.MAX_PLACEHOLDERS) {
+            throw new IllegalArgumentException("IN 목록 값이 너무 많습니다: " + values.length + "개 (placeholder 최대 "
+                    + MultiRowInsert.MAX_PLACEHOLDERS + "개, 트랜잭션 밖의 정수 / 문자열 목록만 임시 테이블 사용)");
+        }
+
+        int count = bucketSize(values.length);
+        append(queryString.replace("?", placeholders(count)));
+
+        for (Object value : values) {
+            params.add(value);
+        }
+        for (int i = values.length; i < count; i++) {
+            params.add(values[values.length - 1]);
+        }
+        return this;
+    }
+
+    /**
+     * n 이상의 가장 작은 2의 거듭제곱 (placeholder 최대 개수를 넘으면 n 그대로)
+     */
+    static int bucketSize(int n) {
+        int bucket = n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+        return bucket > MultiRowInsert.MAX_PLACEHOLDERS ? n : bucket;
+    }
+
+    /**
+     * "?, ?, ?" (count 개)
+     */
+    static String placeholders(int count) {
+        if (count <= 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(count * 3);
+        sb.append('?');
+        for (int i = 1; i < count; i++) {
+            sb.append(", ?");
+        }
+        return sb.toString();
+    }
+
+    private void checkNotCompiled() {
+        if (compiled != null) {
+            throw new IllegalStateException("컴파일된 쿼리에는 append 할 수 없습니다.");
+        }
+    }
+
+    /**
+     * 지금까지 append 한 SQL 을 재사용 가능한 CompiledSql 로 만듦
+     * append 에 넘긴 값은 버려지고, 실행할 때 CompiledSql 에 파라미터를 새로 넘김
+     */
+    public CompiledSql compile() {
+        checkNotCompiled();
+        if (inListTables != null) {
+            throw new IllegalStateException("임시 테이블을 쓰는 appendIn 이 포함된 쿼리는 컴파일할 수 없습니다.");
+        }
+        return new CompiledSql(simpleDb, sql.toString());
+    }
+
+    /**
+     * 이 조회 결과를 SimpleDb 의 조회 캐시에 저장/재사용 (SQL + 파라미터가 같으면 같은 결과)
+     * 참조하는 테이블에 쓰기가 일어나면 자동으로 무효화되고
+     * 커밋되지 않은 쓰기가 있는 트랜잭션 안에서는 캐시를 거치지 않는다.
+     */
+    public Sql cached() {
+        this.cached = true;
+        return this;
+    }
+
+    /**
+     * 배치로 실행할 파라미터 묶음 하나 추가
+     * append(...)로 넣은 파라미터 뒤에 이어서 바인딩된다.
+     */
+    public Sql addBatch(Object... param) {
+        batchParams.add(param);
+        return this;
+    }
+
+    /**
+     * executeBatch() 를 몇 건마다 보낼지 (기본값은 SimpleDb 의 batchFlushSize)
+     */
+    public Sql batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize 는 1 이상이어야 합니다: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * addBatch 로 쌓은 파라미터 묶음을 addBatch/executeBatch 로 실행하고
+     * 생성된 id 를 순서대로 모두 반환
+     * 트랜잭션 밖이면 flush 단위마다 각각 커밋됨
+     */
+    public long[] insertBatch() {
+        String rawSql = getRawSqlOrThrow();
+
+        return withWriteConnection("insertBatch", rawSql, ids -> ids.length, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.RETURN_GENERATED_KEYS)) {
+                long[] ids = new long[batchParams.size()];
+                int[] idCount = {0};
+
+                executeBatch(pstmt, rawSql, () -> {
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        while (rs.next() && idCount[0] < ids.length) {
+                            ids[idCount[0]++] = rs.getLong(1);
+                        }
+                    }
+                });
+
+                return idCount[0] == ids.length ? ids : Arrays.copyOf(ids, idCount[0]);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * addBatch 로 쌓은 파라미터 묶음을 실행하고 묶음별 영향받은 row 수 반환
+     * (rewriteBatchedStatements 로 합쳐진 경우 Statement.SUCCESS_NO_INFO 가 들어올 수 있음)
+     */
+    public int[] updateBatch() {
+        String rawSql = getRawSqlOrThrow();
+
+        return withWriteConnection("updateBatch", rawSql, counts -> counts.length, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
+                return executeBatch(pstmt, rawSql, () -> {});
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /*
+     * 비동기 실행
+     * SimpleDb 의 asyncExecutor 에서 같은 동기 메서드를 실행한다.
+     * 트랜잭션은 스레드(ThreadLocal)에 묶여 있으므로 트랜잭션 안에서는 호출할 수 없다.
+     * 호출한 뒤에는 이 Sql 에 append 하지 않아야 함
+     */
+
+    public CompletableFuture<Long> insertAsync() {
+        return async(this::insert);
+    }
+
+    public CompletableFuture<Integer> updateAsync() {
+        return async(this::update);
+    }
+
+    public CompletableFuture<Integer> deleteAsync() {
+        return async(this::delete);
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> selectRowsAsync() {
+        return async(this::selectRows);
+    }
+
+    public <T> CompletableFuture<List<T>> selectRowsAsync(Class<T> clazz) {
+        return async(() -> selectRows(clazz));
+    }
+
+    public <T> CompletableFuture<T> selectRowAsync(Class<T> clazz) {
+        return async(() -> selectRow(clazz));
+    }
+
+    public CompletableFuture<Long> selectLongAsync() {
+        return async(this::selectLong);
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> call) {
+        if (simpleDb.isInTransaction()) {
+            throw new IllegalStateException("트랜잭션 안에서는 비동기 실행을 할 수 없습니다.");
+        }
+        getRawSqlOrThrow();
+
+        return CompletableFuture.supplyAsync(call, simpleDb.getAsyncExecutor());
+    }
+
+    /**
+     * rows 를 INSERT INTO table (...) VALUES (...), (...) 한 문장(또는 여러 chunk)으로 넣고
+     * 생성된 id 를 순서대로 모두 반환 (연속이라고 가정하지 않음)
+     * 컬럼은 첫 row 의 key 순서를 따름
+     */
+    public long[] insertRows(String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return new long[0];
+        }
+        return insertMultiRow(MultiRowInsert.ofMaps(simpleDb.getDialect(), table, rows));
+    }
+
+    /**
+     * 객체 목록을 multi-row INSERT 로 넣음
+     * columns 를 생략하면 id 를 제외한 모든 필드를 컬럼으로 사용
+     */
+    public <T> long[] insertObjects(String table, List<T> objects, String... columns) {
+        if (objects.isEmpty()) {
+            return new long[0];
+        }
+        return insertMultiRow(MultiRowInsert.ofObjects(simpleDb.getDialect(), table, objects, columns));
+    }
+
+    /**
+     * 여러 문장(chunk)으로 나뉘면 트랜잭션 밖에서도 하나의 트랜잭션으로 묶음
+     * (뒤 chunk 가 실패했을 때 앞 chunk 만 커밋된 채로 남지 않음)
+     * 생성된 id 는 모두 순서대로 반환
+     * (innodb_autoinc_lock_mode=2, auto_increment_increment 등으로 연속이 아닐 수 있으므로 구간으로 줄이지 않음)
+     */
+    private long[] insertMultiRow(MultiRowInsert insert) {
+        List<MultiRowInsert.Chunk> chunks = insert.chunks(simpleDb.getMaxAllowedPacket());
+
+        if (chunks.size() > 1 && !simpleDb.isInTransaction()) {
+            return simpleDb.inTransaction(() -> insertChunks(insert, chunks));
+        }
+        return insertChunks(insert, chunks);
+    }
+
+    private long[] insertChunks(MultiRowInsert insert, List<MultiRowInsert.Chunk> chunks) {
+        // 로그 / 메트릭은 chunk 크기와 상관없이 row 하나짜리 형태로 모음
+        String rawSql = insert.describe();
+
+        // 이 Sql 의 SQL 이 아니라 MultiRowInsert 가 만든 INSERT 를 실행하므로 CompiledSql 의 테이블 목록을 쓰지 않음
+        return withWriteConnection("insertRows", rawSql, null, ids -> ids.length, conn -> {
+            LongList ids = new LongList(insert.rowCount());
+            for (MultiRowInsert.Chunk chunk : chunks) {
+                try (PreparedStatement pstmt = prepareChunk(conn, insert, chunk, rawSql)) {
+                    executeUpdate(pstmt, rawSql);
+
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return ids.toArray();
+        });
+    }
+
+    private PreparedStatement prepareChunk(Connection conn, MultiRowInsert insert, MultiRowInsert.Chunk chunk,
+                                           String rawSql) throws SQLException {
+        long phaseStart = simpleDb.startPhase(SqlPhase.PREPARE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.PREPARE);
+        PreparedStatement pstmt = conn.prepareStatement(
+                simpleDb.nativeSql(insert.render(chunk)), Statement.RETURN_GENERATED_KEYS);
+        try {
+            insert.bind(pstmt, chunk);
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        simpleDb.endPhase(SqlPhase.PREPARE, phaseStart, phaseEvent, rawSql);
+        return pstmt;
+    }
+
     public long insert() {
         String rawSql = getRawSqlOrThrow();
 
-        return withConnection(conn-> {
-            try (PreparedStatement pstmt = conn.prepareStatement(rawSql, Statement.RETURN_GENERATED_KEYS)) {
-                bindParams(pstmt);
+        return withWriteConnection("insert", rawSql, id -> 1, conn-> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.RETURN_GENERATED_KEYS)) {
+                long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+                SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
                 pstmt.executeUpdate();
+                simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql, 1);
 
                 //rs는 resource 반납해야함
                 try (ResultSet rs = pstmt.getGeneratedKeys()) {
@@ -89,13 +416,28 @@ public class Sql {
         });
     }
 
+    /**
+     * SimpleDb.run 용, 종류를 가리지 않고 실행 (DDL 포함)
+     * 영향받은 row 수 반환 (결과셋을 돌려주거나 DDL 이면 0)
+     */
+    int run() {
+        String rawSql = getRawSqlOrThrow();
+
+        return withWriteConnection("run", rawSql, count -> count, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
+                return execute(pstmt, rawSql);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
     public int update() {
         String rawSql = getRawSqlOrThrow();
 
-        return withConnection(conn -> {
-            try (PreparedStatement pstmt = conn.prepareStatement(rawSql)) {
-                bindParams(pstmt);
-                return pstmt.executeUpdate();
+        return withWriteConnection("update", rawSql, count -> count, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
+                return executeUpdate(pstmt, rawSql);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
@@ -105,11 +447,9 @@ public class Sql {
     public int delete() {
         String rawSql = getRawSqlOrThrow();
 
-        return withConnection(conn -> {
-            try(PreparedStatement pstmt = conn.prepareStatement(rawSql)) {
-                bindParams(pstmt);
-
-                return pstmt.executeUpdate();
+        return withWriteConnection("delete", rawSql, count -> count, conn -> {
+            try(PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
+                return executeUpdate(pstmt, rawSql);
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
@@ -119,79 +459,268 @@ public class Sql {
     //select -> executeQuery()사용
 
     public List<Map<String, Object>> selectRows() {
-        String rawSql = getRawSqlOrThrow();
-
-        return withConnection(conn -> {
-
-            try(PreparedStatement pstmt = conn.prepareStatement(rawSql)) {
-                    bindParams(pstmt);
+        if (useQueryCache()) {
+            return selectCachedRows().toMaps();
+        }
+        return selectList(Map.class, labels -> rs -> readRow(rs, labels));
+    }
 
+    /**
+     * ResultSet 에서 타입별로 바로 읽어 객체를 채움 (중간 Map row 없음)
+     * 매퍼는 컬럼 구성별로 컴파일 후 캐싱된 RowMapper 사용
+     */
+    public <T> List<T> selectRows(Class<T> clazz) {
+        if (useQueryCache()) {
+            return selectCachedRows().toObjects(clazz);
+        }
+        return selectList(clazz, labels -> mapperOf(clazz, labels)::mapRow);
+    }
 
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    List<Map<String, Object>> rows = new ArrayList<>();
+    /**
+     * 결과를 한꺼번에 List 로 만들지 않고 커서로 조금씩(fetchSize) 읽어오는 Stream
+     * 커넥션은 Stream 을 닫을 때까지 유지되므로 반드시 try-with-resources 로 사용해야 함
+     * 트랜잭션 안이면 트랜잭션 커넥션을 그대로 쓰고 닫지 않는다.
+     */
+    public Stream<Map<String, Object>> selectRowStream() {
+        return selectStream(labels -> rs -> readRow(rs, labels));
+    }
 
-                    ResultSetMetaData meta = rs.getMetaData();
-                    int columnCount = meta.getColumnCount();
+    public <T> Stream<T> selectRowStream(Class<T> clazz) {
+        return selectStream(labels -> mapperOf(clazz, labels)::mapRow);
+    }
 
-                    while (rs.next()) {
+    /**
+     * selectRowStream() 을 끝까지 읽고 닫아주는 콜백 버전
+     */
+    public void forEachRow(Consumer<Map<String, Object>> action) {
+        try (Stream<Map<String, Object>> rows = selectRowStream()) {
+            rows.forEach(action);
+        }
+    }
 
-                        Map<String, Object> row = new LinkedHashMap<>();
+    public <T> void forEachRow(Class<T> clazz, Consumer<T> action) {
+        try (Stream<T> rows = selectRowStream(clazz)) {
+            rows.forEach(action);
+        }
+    }
 
-                        for (int i = 1; i <= columnCount; i++) {
-                            String columnName = meta.getColumnLabel(i); //as 없으면 getColumnName값을 반환
-                            Object value = rs.getObject(i);
+    /**
+     * keyset(seek) 페이지 조회
+     * 지금까지 만든 쿼리를 derived table 로 감싸서 keyColumn 기준으로 정렬하고 pageSize 만큼 읽음
+     * OFFSET 처럼 앞 row 를 건너뛰며 읽지 않으므로 뒤쪽 페이지도 첫 페이지와 비용이 같음
+     * keyColumn 은 유일해야 하고 SELECT 목록에 있어야 함 ("id", "id DESC")
+     * 지금까지 만든 쿼리에 (서브쿼리 밖의) ORDER BY / LIMIT 이 있으면 IllegalArgumentException
+     * continuationToken 이 null 이면 첫 페이지, 다음 페이지는 Page.nextToken() 을 넘김
+     */
+    public <T> Page<T> selectPage(Class<T> clazz, String keyColumn, int pageSize, String continuationToken) {
+        return page(keyColumn, pageSize, continuationToken, labels -> mapperOf(clazz, labels)::mapRow);
+    }
 
-                            if (value instanceof Timestamp ts) {
-                                value = ts.toLocalDateTime();
-                            }
+    public Page<Map<String, Object>> selectPage(String keyColumn, int pageSize, String continuationToken) {
+        return page(keyColumn, pageSize, continuationToken, labels -> rs -> readRow(rs, labels));
+    }
 
-                            row.put(columnName, value);
-                        }
-                        rows.add(row);
+    /**
+     * selectPage 를 이어 붙여 전체 결과를 pageSize 씩 읽어오는 Iterator
+     * Stream 과 달리 페이지 사이에 커넥션을 잡고 있지 않음
+     */
+    public <T> Iterator<T> iterateByKey(Class<T> clazz, String keyColumn, int pageSize) {
+        return new Iterator<>() {
+            private Page<T> page = selectPage(clazz, keyColumn, pageSize, null);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (index == page.content().size()) {
+                    if (!page.hasNext()) {
+                        return false;
                     }
+                    page = selectPage(clazz, keyColumn, pageSize, page.nextToken());
+                    index = 0;
+                }
+                return true;
+            }
 
-                    return rows;
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+                return page.content().get(index++);
             }
+        };
+    }
+
+    private <R> Page<R> page(String keyColumn, int pageSize, String continuationToken,
+                             Function<String[], RowReader<R>> readerFactory) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize 는 1 이상이어야 합니다: " + pageSize);
+        }
+        Keyset keyset = Keyset.of(keyColumn);
+        boolean first = continuationToken == null;
+
+        Sql pageSql = new Sql(simpleDb);
+        pageSql.sql.append(keyset.render(getRawSqlOrThrow(), first));
+        pageSql.params.addAll(params);
+        if (!first) {
+            pageSql.params.add(Keyset.decode(continuationToken));
+        }
+        // 한 row 더 읽어서 다음 페이지가 있는지 확인
+        pageSql.params.add(pageSize + 1);
+        pageSql.inListTables = inListTables;
+
+        // 페이지의 마지막(pageSize 번째) row 의 키
+        Object[] lastKey = new Object[1];
+        int[] readCount = {0};
+        List<R> rows = pageSql.selectList(Page.class, labels -> {
+            int keyIndex = keyset.columnIndex(labels);
+            RowReader<R> reader = readerFactory.apply(labels);
+            return rs -> {
+                if (readCount[0]++ < pageSize) {
+                    lastKey[0] = rs.getObject(keyIndex);
+                }
+                return reader.read(rs);
+            };
         });
 
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        rows.remove(pageSize);
+        return new Page<>(rows, Keyset.encode(lastKey[0]));
+    }
+
+    private <T> RowMapper<T> mapperOf(Class<T> clazz, String[] labels) {
+        return compiled != null ? compiled.mapper(clazz, labels) : RowMapper.of(clazz, labels);
     }
+
     /**
-     * 리플렉션으로 객체 생성 후 객체리스트반환
+     * ResultSet 의 현재 row 하나를 R 로 읽는 함수
+     * 컬럼 구성(labels)을 보고 한 번 만든 뒤 모든 row 에 재사용
      */
-    public <T> List<T> selectRows(Class<T> clazz) {
-        List<Map<String, Object>> rows = selectRows();
-        List<T> result = new ArrayList<>();
+    @FunctionalInterface
+    private interface RowReader<R> {
+        R read(ResultSet rs) throws SQLException;
+    }
 
-        for (Map<String, Object> row : rows) {
-            try {
-                T obj = clazz.getDeclaredConstructor().newInstance();
+    private <R> List<R> selectList(Class<?> mappedType, Function<String[], RowReader<R>> readerFactory) {
+        String rawSql = getRawSqlOrThrow();
 
-                for (Map.Entry<String, Object> entry : row.entrySet()) {
-                    String column = entry.getKey();
-                    Object value = entry.getValue();
+        return withReadConnection(rawSql, List::size, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
 
-                    String fieldName = toFieldName(column);
+                try (ResultSet rs = executeQuery(pstmt, rawSql)) {
+                    long phaseStart = simpleDb.startPhase(SqlPhase.MAP);
+                    SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.MAP);
+                    RowReader<R> reader = readerFactory.apply(columnLabels(rs.getMetaData()));
+                    List<R> rows = new ArrayList<>();
 
-                    try {
-                        Field field = clazz.getDeclaredField(fieldName);
-                        field.setAccessible(true);
+                    while (rs.next()) {
+                        rows.add(reader.read(rs));
+                    }
 
-                        Object converted = convertValue(field.getType(), value);
+                    simpleDb.endPhase(SqlPhase.MAP, phaseStart, phaseEvent, rawSql, rows.size(), mappedType);
+                    return rows;
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
 
-                        field.set(obj, converted);
-                    } catch (NoSuchFieldException ignore) {
+    private <R> Stream<R> selectStream(Function<String[], RowReader<R>> readerFactory) {
+        String rawSql = getRawSqlOrThrow();
 
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        boolean inTx = simpleDb.isInTransaction();
+        long start = System.nanoTime();
+
+        try {
+            conn = simpleDb.getReadConnection();
+            long acquireNanos = System.nanoTime() - start;
+            createInListTables(conn);
+            pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS);
+            pstmt.setFetchSize(simpleDb.getStreamFetchSize());
+            rs = executeQuery(pstmt, rawSql);
+
+            RowReader<R> reader = readerFactory.apply(columnLabels(rs.getMetaData()));
+            ResultSet cursor = rs;
+            long[] rowCount = {0};
+
+            Spliterator<R> spliterator = new Spliterators.AbstractSpliterator<>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super R> action) {
+                    try {
+                        if (!cursor.next()) {
+                            return false;
+                        }
+                        rowCount[0]++;
+                        action.accept(reader.read(cursor));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
                     }
                 }
-                result.add(obj);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            };
+
+            Connection streamConn = conn;
+            PreparedStatement streamStmt = pstmt;
+            // 스트림은 닫힐 때까지 걸린 시간 / 읽은 row 수로 기록
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> {
+                        closeStream(cursor, streamStmt, streamConn, inTx);
+                        simpleDb.recordQuery("stream", rawSql, params, System.nanoTime() - start, acquireNanos, rowCount[0], null);
+                    });
+        } catch (SQLException | RuntimeException e) {
+            closeStream(rs, pstmt, conn, inTx);
+            RuntimeException error = e instanceof RuntimeException re ? re : new RuntimeException(e);
+            simpleDb.recordError(rawSql);
+            simpleDb.recordQuery("stream", rawSql, params, System.nanoTime() - start, 0, 0, error);
+            throw error;
+        }
+    }
+
+    private void closeStream(ResultSet rs, PreparedStatement pstmt, Connection conn, boolean inTx) {
+        if (rs != null) {
+            try { rs.close(); } catch (SQLException ignore) {}
+        }
+        if (pstmt != null) {
+            try { pstmt.close(); } catch (SQLException ignore) {}
+        }
+        if (conn != null) {
+            dropInListTables(conn);
+        }
+        if (!inTx && conn != null) {
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+    }
+
+    private String[] columnLabels(ResultSetMetaData meta) throws SQLException {
+        int columnCount = meta.getColumnCount();
+        String[] labels = new String[columnCount];
+
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = meta.getColumnLabel(i); //as 없으면 getColumnName값을 반환
+        }
+        return labels;
+    }
+
+    private Map<String, Object> readRow(ResultSet rs, String[] labels) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+
+        for (int i = 1; i <= labels.length; i++) {
+            Object value = rs.getObject(i);
+
+            if (value instanceof Timestamp ts) {
+                value = ts.toLocalDateTime();
             }
+
+            row.put(labels[i - 1], value);
         }
-        return result;
+        return row;
     }
 
     public Map<String, Object> selectRow() {
@@ -274,40 +803,151 @@ public class Sql {
     }
 
     public List<Long> selectLongs() {
-        List<Map<String, Object>> rows = selectRows();
-        ArrayList<Long> result = new ArrayList<>(rows.size());
+        if (useQueryCache()) {
+            return selectCachedRows().firstColumn(Sql::toLong);
+        }
+        // 첫 번째 컬럼만 바로 읽음 (row 마다 Map 을 만들지 않음)
+        return selectList(Long.class, labels -> rs -> toLong(rs.getObject(1)));
+    }
 
-        for (Map<String, Object> row : rows) {
-            if(row.isEmpty()){
-                result.add(null);
-                continue;
-            }
+    private static Long toLong(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number num) {
+            return num.longValue();
+        }
+        throw new RuntimeException("숫자 타입이 아닙니다: " + value);
+    }
+
+    /**
+     * 첫 번째 컬럼을 박싱 없이 rs.getLong(1) 로 읽음
+     * primitive 라서 NULL 은 담을 수 없음 (NULL 이 있으면 예외)
+     */
+    public long[] selectLongArray() {
+        if (useQueryCache()) {
+            return ((long[]) cachedQuery("longs", this::queryLongs)).clone();
+        }
+        return queryLongs();
+    }
+
+    public LongList selectLongList() {
+        return LongList.wrap(selectLongArray());
+    }
+
+    public int[] selectIntArray() {
+        if (useQueryCache()) {
+            return ((int[]) cachedQuery("ints", this::queryInts)).clone();
+        }
+        return queryInts();
+    }
 
-            Object value = row.values().iterator().next(); //id값만 찾기
+    public double[] selectDoubleArray() {
+        if (useQueryCache()) {
+            return ((double[]) cachedQuery("doubles", this::queryDoubles)).clone();
+        }
+        return queryDoubles();
+    }
 
-            if (value == null) {
-                result.add(null);
-                continue;
+    private long[] queryLongs() {
+        LongList values = new LongList();
+        scanFirstColumn(long[].class, (rs, index) -> {
+            long value = rs.getLong(1);
+            if (value == 0) {
+                checkNotNull(rs);
             }
+            values.add(value);
+        });
+        return values.toArray();
+    }
 
-            if (value instanceof Number num) {
-                result.add(num.longValue());
-            } else {
-                throw new RuntimeException("숫자 타입이 아닙니다: " + value);
+    private int[] queryInts() {
+        int[][] values = {new int[16]};
+        int size = scanFirstColumn(int[].class, (rs, index) -> {
+            int value = rs.getInt(1);
+            if (value == 0) {
+                checkNotNull(rs);
+            }
+            if (index == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], index + (index >> 1));
+            }
+            values[0][index] = value;
+        });
+        return Arrays.copyOf(values[0], size);
+    }
+
+    private double[] queryDoubles() {
+        double[][] values = {new double[16]};
+        int size = scanFirstColumn(double[].class, (rs, index) -> {
+            double value = rs.getDouble(1);
+            if (value == 0) {
+                checkNotNull(rs);
             }
+            if (index == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], index + (index >> 1));
+            }
+            values[0][index] = value;
+        });
+        return Arrays.copyOf(values[0], size);
+    }
+
+    /**
+     * NULL 은 getLong / getInt / getDouble 에서 0 으로 오므로 0 일 때만 wasNull() 확인
+     */
+    private static void checkNotNull(ResultSet rs) throws SQLException {
+        if (rs.wasNull()) {
+            throw new RuntimeException("NULL 값은 primitive 배열로 읽을 수 없습니다. (row " + rs.getRow() + ")");
         }
-        return result;
+    }
+
+    /**
+     * row 마다 index(0부터) 와 함께 ResultSet 을 넘겨줌 (primitive 배열용)
+     */
+    @FunctionalInterface
+    private interface ColumnScanner {
+        void scan(ResultSet rs, int index) throws SQLException;
+    }
+
+    private int scanFirstColumn(Class<?> mappedType, ColumnScanner scanner) {
+        String rawSql = getRawSqlOrThrow();
+
+        return withReadConnection(rawSql, count -> count, conn -> {
+            try (PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
+                // 수백만 row 를 드라이버가 한꺼번에 버퍼링하지 않도록 커서로 나눠 받음
+                pstmt.setFetchSize(simpleDb.getStreamFetchSize());
+
+                try (ResultSet rs = executeQuery(pstmt, rawSql)) {
+                    long phaseStart = simpleDb.startPhase(SqlPhase.MAP);
+                    SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.MAP);
+                    int count = 0;
+
+                    while (rs.next()) {
+                        scanner.scan(rs, count++);
+                    }
+
+                    simpleDb.endPhase(SqlPhase.MAP, phaseStart, phaseEvent, rawSql, count, mappedType);
+                    return count;
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
     }
 
     private Object selectSingleValue() {
+        if (useQueryCache()) {
+            return cachedQuery("value", this::querySingleValue);
+        }
+        return querySingleValue();
+    }
+
+    private Object querySingleValue() {
         String rawSql = getRawSqlOrThrow();
 
-        return withConnection(conn-> {
-            try(PreparedStatement pstmt = conn.prepareStatement(rawSql)) {
-                // 파라미터 바인딩
-                bindParams(pstmt);
+        return withReadConnection(rawSql, value -> value == null ? 0 : 1, conn-> {
+            try(PreparedStatement pstmt = prepare(conn, rawSql, Statement.NO_GENERATED_KEYS)) {
 
-                try (ResultSet rs = pstmt.executeQuery()) {
+                try (ResultSet rs = executeQuery(pstmt, rawSql)) {
                     if (!rs.next()) {
                         return null;
                     }
@@ -320,62 +960,174 @@ public class Sql {
 
     }
 
+    private boolean useQueryCache() {
+        // 임시 테이블 값은 캐시 키(파라미터)에 들어가지 않으므로 캐싱하지 않음
+        return cached && inListTables == null && simpleDb.canUseQueryCache();
+    }
+
     /**
-     * snake_case_column
-     * to
-     * camelCaseColumn
+     * 캐시에 저장하는 조회 결과 (컬럼 이름 + row 별 값 배열)
+     * 꺼낼 때마다 새 Map / 객체를 만들어서 호출한 쪽이 수정해도 캐시에 영향 없음
      */
-    private String toFieldName(String column) {
-        if(!column.contains("_"))
-            return column;
-
-        StringBuilder sb = new StringBuilder();
-        String[] splits = column.split("_");
+    private record CachedRows(String[] labels, List<Object[]> rows) {
+        List<Map<String, Object>> toMaps() {
+            List<Map<String, Object>> maps = new ArrayList<>(rows.size());
+            for (Object[] values : rows) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < labels.length; i++) {
+                    row.put(labels[i], values[i]);
+                }
+                maps.add(row);
+            }
+            return maps;
+        }
 
-        sb.append(splits[0].toLowerCase());
+        <T> List<T> firstColumn(Function<Object, T> converter) {
+            List<T> values = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                values.add(converter.apply(row[0]));
+            }
+            return values;
+        }
 
-        for (int i = 1; i < splits.length; i++) {
-            String str = splits[i];
-            sb.append(Character.toUpperCase(str.charAt(0)));
-            sb.append(str.substring(1).toLowerCase());
+        <T> List<T> toObjects(Class<T> clazz) {
+            RowMapper<T> mapper = RowMapper.of(clazz, labels);
+            List<T> objects = new ArrayList<>(rows.size());
+            for (Object[] values : rows) {
+                objects.add(mapper.mapValues(values));
+            }
+            return objects;
         }
+    }
 
-        return sb.toString();
+    private CachedRows selectCachedRows() {
+        return (CachedRows) cachedQuery("rows", () -> {
+            String[][] labels = new String[1][];
+            List<Object[]> rows = selectList(Object[].class, columnLabels -> {
+                labels[0] = columnLabels;
+                return rs -> readValues(rs, columnLabels.length);
+            });
+            return new CachedRows(labels[0], rows);
+        });
     }
 
-    private Object convertValue(Class<?> type, Object value) {
-        if (value == null)
-            return null;
+    private Object cachedQuery(String kind, Supplier<Object> query) {
+        String rawSql = getRawSqlOrThrow();
+        QueryCache cache = simpleDb.getQueryCache();
+        QueryCache.Key key = new QueryCache.Key(kind, rawSql, Arrays.asList(params.toArray()));
 
-        if (type.isAssignableFrom(value.getClass())) {
+        Object value = cache.get(key);
+        if (value != null) {
             return value;
         }
 
-        if (type == long.class || type == Long.class) {
-            return ((Number) value).longValue();
+        long version = cache.version();
+        // 최근 쓰기가 아직 replica 에 반영되지 않았을 수 있으므로 그 동안은 primary 에서 읽어서 캐싱
+        readFromPrimary = simpleDb.hasRecentWrite();
+        try {
+            value = query.get();
+        } finally {
+            readFromPrimary = false;
         }
+        if (value != null) {
+            cache.put(key, value, QueryCache.tablesOf(rawSql), version);
+        }
+        return value;
+    }
+
+    private Object[] readValues(ResultSet rs, int columnCount) throws SQLException {
+        Object[] values = new Object[columnCount];
+
+        for (int i = 1; i <= columnCount; i++) {
+            Object value = rs.getObject(i);
+
+            if (value instanceof Timestamp ts) {
+                value = ts.toLocalDateTime();
+            }
 
-        if (type == int.class || type == Integer.class) {
-            return ((Number) value).intValue();
+            values[i - 1] = value;
         }
+        return values;
+    }
+
+    /**
+     * 이 Sql 의 SQL(rawSql) 을 쓰기로 실행
+     */
+    private <T> T withWriteConnection(String operation, String rawSql, ToLongFunction<T> rowCount,
+                                      Function<Connection, T> callback) {
+        return withWriteConnection(operation, rawSql, compiled, rowCount, callback);
+    }
 
-        if (type == boolean.class || type == Boolean.class) {
-            if (value instanceof Boolean b) return b;
-            if (value instanceof Number n) return n.intValue() != 0;
+    /**
+     * 쓰기 실행 후 조회 캐시 무효화
+     * source 가 있으면 미리 뽑아둔 테이블 목록 사용, 없으면 rawSql 에서 새로 계산
+     */
+    private <T> T withWriteConnection(String operation, String rawSql, CompiledSql source,
+                                      ToLongFunction<T> rowCount, Function<Connection, T> callback) {
+        try {
+            return withConnection(operation, rawSql, rowCount, callback);
+        } finally {
+            if (source != null) {
+                simpleDb.afterWrite(source.tables());
+            } else {
+                simpleDb.afterWrite(rawSql);
+            }
         }
+    }
 
-        if (type == String.class) {
-            return value.toString();
+    @FunctionalInterface
+    private interface FlushCallback {
+        void afterFlush() throws SQLException;
+    }
+
+    /**
+     * batchParams 를 flush 크기만큼씩 addBatch -> executeBatch
+     * flush 마다 afterFlush 호출 (생성 키 수집 등)
+     */
+    private int[] executeBatch(PreparedStatement pstmt, String rawSql, FlushCallback callback) throws SQLException {
+        if (batchParams.isEmpty()) {
+            throw new IllegalStateException("배치 파라미터가 없습니다. addBatch(...)로 먼저 추가하세요.");
         }
 
-        if (type == LocalDateTime.class && value instanceof Timestamp ts) {
-            return ts.toLocalDateTime();
+        int flushSize = batchSize > 0 ? batchSize : simpleDb.getBatchFlushSize();
+        int[] counts = new int[batchParams.size()];
+        int done = 0;
+        int pending = 0;
+
+        for (Object[] batch : batchParams) {
+            bindParams(pstmt);
+            for (int i = 0; i < batch.length; i++) {
+                pstmt.setObject(params.size() + i + 1, batch[i]);
+            }
+            pstmt.addBatch();
+
+            if (++pending == flushSize) {
+                long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+                SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
+                int[] flushed = pstmt.executeBatch();
+                simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql, flushed.length);
+                System.arraycopy(flushed, 0, counts, done, flushed.length);
+                done += flushed.length;
+                pending = 0;
+                callback.afterFlush();
+            }
         }
 
-        throw new RuntimeException("변환 불가: " + value + " → " + type);
+        if (pending > 0) {
+            long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+            SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
+            int[] flushed = pstmt.executeBatch();
+            simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql, flushed.length);
+            System.arraycopy(flushed, 0, counts, done, flushed.length);
+            callback.afterFlush();
+        }
+        return counts;
     }
 
     private String getRawSqlOrThrow() {
+        if (compiled != null) {
+            return compiled.getSql();
+        }
         String rawSql = sql.toString();
 
         if (rawSql.isBlank()) {
@@ -384,6 +1136,52 @@ public class Sql {
         return rawSql;
     }
 
+    /**
+     * 이 Sql 의 SQL 로 prepareStatement + 파라미터 바인딩 (PREPARE 구간으로 기록)
+     * rawSql 은 getRawSqlOrThrow() 결과, 컴파일된 쿼리면 미리 변환해둔 DB 용 SQL 사용
+     */
+    private PreparedStatement prepare(Connection conn, String rawSql, int autoGeneratedKeys) throws SQLException {
+        long phaseStart = simpleDb.startPhase(SqlPhase.PREPARE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.PREPARE);
+        String nativeSql = compiled != null ? compiled.nativeSql() : simpleDb.nativeSql(rawSql);
+        PreparedStatement pstmt = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? conn.prepareStatement(nativeSql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(nativeSql);
+        try {
+            bindParams(pstmt);
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        simpleDb.endPhase(SqlPhase.PREPARE, phaseStart, phaseEvent, rawSql);
+        return pstmt;
+    }
+
+    private ResultSet executeQuery(PreparedStatement pstmt, String rawSql) throws SQLException {
+        long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
+        ResultSet rs = pstmt.executeQuery();
+        simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql);
+        return rs;
+    }
+
+    private int execute(PreparedStatement pstmt, String rawSql) throws SQLException {
+        long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
+        pstmt.execute();
+        int count = Math.max(pstmt.getUpdateCount(), 0);
+        simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql, count);
+        return count;
+    }
+
+    private int executeUpdate(PreparedStatement pstmt, String rawSql) throws SQLException {
+        long phaseStart = simpleDb.startPhase(SqlPhase.EXECUTE);
+        SqlEvents.PhaseEvent phaseEvent = SqlEvents.begin(SqlPhase.EXECUTE);
+        int count = pstmt.executeUpdate();
+        simpleDb.endPhase(SqlPhase.EXECUTE, phaseStart, phaseEvent, rawSql, count);
+        return count;
+    }
+
     private void bindParams(PreparedStatement pstmt) throws SQLException {
         for(int i = 0; i < params.size(); i++) {
             pstmt.setObject(i+1, params.get(i));
@@ -391,29 +1189,81 @@ public class Sql {
     }
 
     /**
-     * 1. simpleDb.getConnection()으로 커넥션 가져오기
+     * 1. 커넥션 가져오기 (쓰기는 simpleDb.getConnection(), 조회는 simpleDb.getReadConnection() -> 트랜잭션 밖이면 replica 가능)
      * 2. simpleDb.isInTransaction()으로 트랜잭션 여부 확인
      * 3. PreparedStatement 만들고 파라미터 바인딩하고 execute
      * 4. 트랜잭션이 아니면 커넥션 닫기, 트랜잭션이면 안 닫기
      * 5. SQLException → RuntimeException으로 감싸서 던지기
-     * 1~5를 템플릿 함수로 만듦
+     * 6. 걸린 시간 / row 수를 쿼리 로그에 남기기
+     * 1~6를 템플릿 함수로 만듦
      * 실제 쿼리 실행 로직만 콜백으로 넘기기 <Connection, T> -> Connection타입을 받고 T타입을 리턴하는 함수
      */
-    private <T> T withConnection(Function<Connection, T> callback) {
+    private <T> T withReadConnection(String rawSql, ToLongFunction<T> rowCount, Function<Connection, T> callback) {
+        return withConnection("select", rawSql, rowCount, callback, true);
+    }
+
+    private <T> T withConnection(String operation, String rawSql, ToLongFunction<T> rowCount,
+                                 Function<Connection, T> callback) {
+        return withConnection(operation, rawSql, rowCount, callback, false);
+    }
+
+    private <T> T withConnection(String operation, String rawSql, ToLongFunction<T> rowCount,
+                                 Function<Connection, T> callback, boolean read) {
+        long start = System.nanoTime();
+        long acquireNanos = 0;
+        RuntimeException error = null;
+        long rows = 0;
+
         Connection conn = null;
         try {
-            conn = simpleDb.getConnection();
+            conn = read ? simpleDb.getReadConnection(readFromPrimary) : simpleDb.getConnection();
+            acquireNanos = System.nanoTime() - start;
             boolean inTx = simpleDb.isInTransaction();
 
             try {
-                return callback.apply(conn);
+                createInListTables(conn);
+                T result = callback.apply(conn);
+                rows = rowCount.applyAsLong(result);
+                return result;
             } finally {
+                dropInListTables(conn);
                 if (!inTx && conn != null) {
                     try { conn.close(); } catch (SQLException ignore) {}
                 }
             }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            error = new RuntimeException(e);
+            throw error;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (error != null) {
+                simpleDb.recordError(rawSql);
+            }
+            simpleDb.recordQuery(operation, rawSql, params, System.nanoTime() - start, acquireNanos, rows, error);
+        }
+    }
+
+    private void createInListTables(Connection conn) throws SQLException {
+        if (inListTables == null) {
+            return;
+        }
+        // 트랜잭션 밖에서 만든 Sql 을 트랜잭션 안에서 실행하는 경우 (DDL 이 트랜잭션을 커밋해버림)
+        if (simpleDb.isInTransaction()) {
+            throw new IllegalStateException("임시 테이블을 쓰는 appendIn 쿼리는 트랜잭션 안에서 실행할 수 없습니다. 트랜잭션 안에서 Sql 을 만들어 주세요.");
+        }
+        for (InListTable table : inListTables) {
+            table.create(conn, simpleDb.getDialect(), simpleDb.getBatchFlushSize());
+        }
+    }
+
+    private void dropInListTables(Connection conn) {
+        if (inListTables == null) {
+            return;
+        }
+        for (InListTable table : inListTables) {
+            table.drop(conn, simpleDb.getDialect());
         }
     }
 }
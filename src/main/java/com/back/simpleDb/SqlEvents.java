@@ -0,0 +1,118 @@
+package com.back.simpleDb;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ *  SqlEvents 역할
+ *  1. JFR(Java Flight Recorder) 커스텀 이벤트 정의
+ *  2. 구간(acquire, prepare, execute, map)마다 이벤트 하나, 트랜잭션 begin / commit / rollback 이벤트 하나
+ *  3. JFR 이 꺼져 있으면 (이벤트 타입이 enabled 가 아니면) 이벤트 객체를 만들지 않고 null -> 할당 없음
+ *
+ *  jfr print --categories SimpleDb recording.jfr 로 확인
+ */
+final class SqlEvents {
+
+    private static final String CATEGORY = "SimpleDb";
+
+    private static final EventType ACQUIRE_TYPE = EventType.getEventType(ConnectionAcquireEvent.class);
+    private static final EventType PREPARE_TYPE = EventType.getEventType(StatementPrepareEvent.class);
+    private static final EventType EXECUTE_TYPE = EventType.getEventType(StatementExecuteEvent.class);
+    private static final EventType MAP_TYPE = EventType.getEventType(ResultMapEvent.class);
+    private static final EventType TRANSACTION_TYPE = EventType.getEventType(TransactionEvent.class);
+
+    private SqlEvents() {}
+
+    /**
+     * 구간 이벤트 공통 필드
+     */
+    @Category(CATEGORY)
+    @StackTrace(false)
+    abstract static class PhaseEvent extends Event {
+        @Label("Fingerprint")
+        @Description("리터럴 / IN 목록을 ? 로 정규화한 SQL")
+        String fingerprint;
+
+        @Label("Row Count")
+        long rowCount = -1;
+
+        @Label("Mapped Type")
+        @Description("selectRows(Class) 등에서 row 를 매핑한 클래스")
+        Class<?> mappedType;
+    }
+
+    @Name("com.back.simpleDb.ConnectionAcquire")
+    @Label("Connection Acquire")
+    static class ConnectionAcquireEvent extends PhaseEvent {}
+
+    @Name("com.back.simpleDb.StatementPrepare")
+    @Label("Statement Prepare")
+    static class StatementPrepareEvent extends PhaseEvent {}
+
+    @Name("com.back.simpleDb.StatementExecute")
+    @Label("Statement Execute")
+    static class StatementExecuteEvent extends PhaseEvent {}
+
+    @Name("com.back.simpleDb.ResultMap")
+    @Label("Result Mapping")
+    static class ResultMapEvent extends PhaseEvent {}
+
+    @Name("com.back.simpleDb.Transaction")
+    @Label("Transaction")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class TransactionEvent extends Event {
+        @Label("Action")
+        @Description("begin, commit, rollback, retry, savepoint, release")
+        String action;
+
+        @Label("Depth")
+        @Description("1 = outer transaction, 2+ = nested (savepoint)")
+        int depth = 1;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * 구간 이벤트 begin, JFR 이 이 이벤트를 기록하지 않으면 null
+     */
+    static PhaseEvent begin(SqlPhase phase) {
+        PhaseEvent event = switch (phase) {
+            case ACQUIRE -> ACQUIRE_TYPE.isEnabled() ? new ConnectionAcquireEvent() : null;
+            case PREPARE -> PREPARE_TYPE.isEnabled() ? new StatementPrepareEvent() : null;
+            case EXECUTE -> EXECUTE_TYPE.isEnabled() ? new StatementExecuteEvent() : null;
+            case MAP -> MAP_TYPE.isEnabled() ? new ResultMapEvent() : null;
+        };
+        if (event != null) {
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * 트랜잭션 이벤트 begin, JFR 이 이 이벤트를 기록하지 않으면 null
+     */
+    static TransactionEvent beginTransaction(String action, int depth) {
+        if (!TRANSACTION_TYPE.isEnabled()) {
+            return null;
+        }
+        TransactionEvent event = new TransactionEvent();
+        event.action = action;
+        event.depth = depth;
+        event.begin();
+        return event;
+    }
+
+    static void commit(TransactionEvent event, boolean succeeded) {
+        if (event != null) {
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+}
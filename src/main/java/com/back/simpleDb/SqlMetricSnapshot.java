@@ -0,0 +1,22 @@
+package com.back.simpleDb;
+
+/**
+ * (SQL fingerprint, 구간) 하나의 지연시간 통계, 시간 단위는 나노초
+ */
+public record SqlMetricSnapshot(
+        String fingerprint,
+        SqlPhase phase,
+        long count,
+        long errors,
+        long sumNanos,
+        long maxNanos,
+        long p50Nanos,
+        long p90Nanos,
+        long p99Nanos,
+        long p999Nanos
+) {
+
+    public double meanNanos() {
+        return count == 0 ? 0.0 : (double) sumNanos / count;
+    }
+}
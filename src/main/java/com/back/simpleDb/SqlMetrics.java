@@ -0,0 +1,234 @@
+package com.back.simpleDb;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ *  SqlMetrics 역할
+ *  1. SQL 을 fingerprint(리터럴/IN 목록을 ? 로 정규화)로 묶어서
+ *  2. 구간(acquire, prepare, execute, map)별 지연시간 히스토그램과 에러 수를 기록
+ *  3. 스냅샷 / Prometheus 텍스트로 내보냄
+ *  4. inTransaction 재시도 횟수
+ *  5. fingerprint 종류는 maxFingerprints 개까지만 따로 기록, 넘으면 "other" 로 묶음
+ *     (리터럴을 이어붙여 만든 SQL 처럼 종류가 끝없이 늘어나도 메모리 / Prometheus 시계열이 늘지 않도록)
+ */
+public class SqlMetrics {
+
+    // fingerprint 캐시 최대 크기 (넘으면 캐싱하지 않고 매번 계산)
+    private static final int MAX_FINGERPRINT_CACHE = 10_000;
+
+    // 따로 기록하는 fingerprint 기본 최대 개수, 넘은 fingerprint 는 OTHER_FINGERPRINT 로 기록
+    static final int DEFAULT_MAX_FINGERPRINTS = 1_000;
+    static final String OTHER_FINGERPRINT = "other";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern VALUES_GROUPS = Pattern.compile("(\\(\\s*[^()]*\\))(?:\\s*,\\s*\\(\\s*[^()]*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Prometheus 로 내보낼 le 버킷 (초), 라벨은 지수 표기(1.0E-4) 없이 고정 소수로
+    private static final String[] PROMETHEUS_BUCKETS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5",
+            "1", "2.5", "5", "10"
+    };
+    private static final long[] PROMETHEUS_BUCKET_NANOS = new long[PROMETHEUS_BUCKETS.length];
+
+    static {
+        for (int i = 0; i < PROMETHEUS_BUCKETS.length; i++) {
+            PROMETHEUS_BUCKET_NANOS[i] = new BigDecimal(PROMETHEUS_BUCKETS[i]).movePointRight(9).longValueExact();
+        }
+    }
+
+    private record Key(String fingerprint, SqlPhase phase) {}
+
+    private final Map<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<Key, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    // 히스토그램 / 에러 수를 따로 기록 중인 fingerprint
+    private final Set<String> trackedFingerprints = ConcurrentHashMap.newKeySet();
+    private final int maxFingerprints;
+    // inTransaction 재시도 횟수 / 재시도를 다 쓰고도 실패한 횟수
+    private final LongAdder transactionRetries = new LongAdder();
+    private final LongAdder transactionRetriesExhausted = new LongAdder();
+
+    public SqlMetrics() {
+        this(DEFAULT_MAX_FINGERPRINTS);
+    }
+
+    SqlMetrics(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * SQL 정규화
+     * 'abc', 123 -> ?
+     * IN (?, ?, ?) -> IN (?+)
+     * VALUES (?, ?), (?, ?) -> VALUES (?+), ...
+     */
+    public static String fingerprint(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = PLACEHOLDER_LIST.matcher(normalized).replaceAll("?+");
+        normalized = VALUES_GROUPS.matcher(normalized).replaceAll("$1, ...");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    String fingerprintOf(String sql) {
+        if (sql.isEmpty()) {
+            return sql;
+        }
+        String cached = fingerprints.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        String fingerprint = fingerprint(sql);
+        if (fingerprints.size() < MAX_FINGERPRINT_CACHE) {
+            fingerprints.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 이미 기록 중이거나 아직 자리가 있으면 fingerprint 그대로, 아니면 OTHER_FINGERPRINT
+     * (동시에 추가되면 maxFingerprints 를 조금 넘을 수 있음)
+     */
+    private String bucketOf(String sql) {
+        String fingerprint = fingerprintOf(sql);
+        if (trackedFingerprints.contains(fingerprint)) {
+            return fingerprint;
+        }
+        if (trackedFingerprints.size() < maxFingerprints) {
+            trackedFingerprints.add(fingerprint);
+            return fingerprint;
+        }
+        return OTHER_FINGERPRINT;
+    }
+
+    /**
+     * sql 이 빈 문자열이면 SQL 과 무관한 구간 (커넥션 획득 등)
+     */
+    void record(String sql, SqlPhase phase, long nanos) {
+        Key key = new Key(bucketOf(sql), phase);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * 실패한 구간으로 기록 (커넥션 획득 실패도 어떤 SQL 에서 났는지 알 수 있도록 SQL fingerprint 로 묶음)
+     */
+    void recordError(String sql, SqlPhase phase) {
+        errors.computeIfAbsent(new Key(bucketOf(sql), phase), k -> new LongAdder()).increment();
+    }
+
+    void recordTransactionRetry() {
+        transactionRetries.increment();
+    }
+
+    void recordTransactionRetriesExhausted() {
+        transactionRetriesExhausted.increment();
+    }
+
+    public long getTransactionRetryCount() {
+        return transactionRetries.sum();
+    }
+
+    public long getTransactionRetriesExhaustedCount() {
+        return transactionRetriesExhausted.sum();
+    }
+
+    public List<SqlMetricSnapshot> snapshot() {
+        List<SqlMetricSnapshot> result = new ArrayList<>();
+
+        for (Map.Entry<Key, LatencyHistogram> entry : histograms.entrySet()) {
+            Key key = entry.getKey();
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            LongAdder errorCount = errors.get(key);
+
+            result.add(new SqlMetricSnapshot(
+                    key.fingerprint, key.phase, s.count(),
+                    errorCount == null ? 0 : errorCount.sum(),
+                    s.sumNanos(), s.maxNanos(),
+                    s.percentile(0.5), s.percentile(0.9), s.percentile(0.99), s.percentile(0.999)));
+        }
+        // 끝나지 못해서 지연시간이 없는 구간 (커넥션 획득 실패 등)
+        for (Map.Entry<Key, LongAdder> entry : errors.entrySet()) {
+            Key key = entry.getKey();
+            if (!histograms.containsKey(key)) {
+                result.add(new SqlMetricSnapshot(
+                        key.fingerprint, key.phase, 0, entry.getValue().sum(), 0, 0, 0, 0, 0, 0));
+            }
+        }
+
+        result.sort(Comparator.comparing(SqlMetricSnapshot::fingerprint).thenComparing(SqlMetricSnapshot::phase));
+        return result;
+    }
+
+    /**
+     * Prometheus text exposition format
+     * simpledb_sql_duration_seconds (histogram), simpledb_sql_errors_total (counter)
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP simpledb_sql_duration_seconds SQL latency by fingerprint and phase\n");
+        sb.append("# TYPE simpledb_sql_duration_seconds histogram\n");
+        for (Map.Entry<Key, LatencyHistogram> entry : histograms.entrySet()) {
+            Key key = entry.getKey();
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            String labels = "fingerprint=\"" + escape(key.fingerprint) + "\",phase=\"" + key.phase.label() + "\"";
+
+            for (int i = 0; i < PROMETHEUS_BUCKETS.length; i++) {
+                sb.append("simpledb_sql_duration_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(PROMETHEUS_BUCKETS[i]).append("\"} ")
+                        .append(s.countAtOrBelow(PROMETHEUS_BUCKET_NANOS[i])).append('\n');
+            }
+            sb.append("simpledb_sql_duration_seconds_bucket{").append(labels)
+                    .append(",le=\"+Inf\"} ").append(s.count()).append('\n');
+            sb.append("simpledb_sql_duration_seconds_sum{").append(labels).append("} ")
+                    .append(BigDecimal.valueOf(s.sumNanos(), 9).toPlainString()).append('\n');
+            sb.append("simpledb_sql_duration_seconds_count{").append(labels).append("} ")
+                    .append(s.count()).append('\n');
+        }
+
+        sb.append("# HELP simpledb_sql_errors_total Failed SQL executions by fingerprint and failed phase\n");
+        sb.append("# TYPE simpledb_sql_errors_total counter\n");
+        for (Map.Entry<Key, LongAdder> entry : errors.entrySet()) {
+            Key key = entry.getKey();
+            sb.append("simpledb_sql_errors_total{fingerprint=\"").append(escape(key.fingerprint))
+                    .append("\",phase=\"").append(key.phase.label()).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+
+        sb.append("# HELP simpledb_transaction_retries_total inTransaction retries after deadlock / lock wait timeout\n");
+        sb.append("# TYPE simpledb_transaction_retries_total counter\n");
+        sb.append("simpledb_transaction_retries_total ").append(transactionRetries.sum()).append('\n');
+        sb.append("# HELP simpledb_transaction_retries_exhausted_total inTransaction failures after the last attempt\n");
+        sb.append("# TYPE simpledb_transaction_retries_exhausted_total counter\n");
+        sb.append("simpledb_transaction_retries_exhausted_total ").append(transactionRetriesExhausted.sum()).append('\n');
+
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public void reset() {
+        histograms.clear();
+        errors.clear();
+        transactionRetries.reset();
+        transactionRetriesExhausted.reset();
+    }
+}
@@ -0,0 +1,16 @@
+package com.back.simpleDb;
+
+/**
+ * 쿼리 실행을 나눈 구간
+ * ACQUIRE 는 SQL 과 상관없이 커넥션을 얻는 데 걸린 시간
+ */
+public enum SqlPhase {
+    ACQUIRE,
+    PREPARE,
+    EXECUTE,
+    MAP;
+
+    String label() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,220 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  StatementCache 역할
+ *  1. 물리 커넥션 하나에 묶인 PreparedStatement 를 (SQL, generatedKeys) 로 캐싱 (LRU)
+ *  2. 캐시된 statement 의 close() 는 파라미터 / 바뀐 설정을 되돌리고 캐시로 돌려놓음
+ *     (되돌릴 수 없는 설정을 바꿨으면 캐시에서 빼고 닫음)
+ *  3. hit / miss / eviction 카운트
+ *
+ *  커넥션 하나는 한 스레드만 쓰므로 동기화하지 않는다.
+ */
+class StatementCache {
+
+    /**
+     * 풀 전체가 공유하는 카운터
+     */
+    static class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        StatementCacheStats snapshot() {
+            return new StatementCacheStats(hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+
+    private record Key(String sql, int autoGeneratedKeys) {}
+
+    // 반납할 때 처음 값으로 되돌리는 statement 설정
+    private static final Set<String> RESETTABLE_SETTINGS = Set.of(
+            "setFetchSize", "setMaxRows", "setLargeMaxRows", "setQueryTimeout", "setFetchDirection");
+    // 처음 값을 되돌릴 방법이 마땅치 않은 설정 -> 바꿨으면 반납할 때 버림
+    private static final Set<String> UNRESETTABLE_SETTINGS = Set.of(
+            "setMaxFieldSize", "setEscapeProcessing", "setCursorName", "setPoolable", "closeOnCompletion");
+
+    /**
+     * 설정을 처음 바꾸기 직전의 값 (바꾸지 않은 statement 는 조회하지 않음)
+     */
+    private record Settings(int fetchSize, int maxRows, int queryTimeout, int fetchDirection) {
+        static Settings of(Statement stmt) throws SQLException {
+            return new Settings(stmt.getFetchSize(), stmt.getMaxRows(), stmt.getQueryTimeout(), stmt.getFetchDirection());
+        }
+
+        void restore(Statement stmt) throws SQLException {
+            // fetchSize 는 maxRows 보다 클 수 없으므로 (H2 등) maxRows 부터
+            stmt.setMaxRows(maxRows);
+            stmt.setFetchSize(fetchSize);
+            stmt.setQueryTimeout(queryTimeout);
+            stmt.setFetchDirection(fetchDirection);
+        }
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<Key, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null) {
+            // 같은 SQL 이 이미 사용 중이면 (열린 ResultSet 순회 중 재호출 등) 캐시 없이 새로 만든다
+            if (cached.inUse) {
+                counters.misses.increment();
+                return prepareRaw(key);
+            }
+            counters.hits.increment();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        counters.misses.increment();
+        cached = new CachedStatement(key, prepareRaw(key));
+        cached.inUse = true;
+        statements.put(key, cached);
+        evictIfNeeded();
+
+        return cached.proxy;
+    }
+
+    private PreparedStatement prepareRaw(Key key) throws SQLException {
+        if (key.autoGeneratedKeys == Statement.NO_GENERATED_KEYS) {
+            return physical.prepareStatement(key.sql);
+        }
+        return physical.prepareStatement(key.sql, key.autoGeneratedKeys);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Key, CachedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            it.remove();
+            counters.evictions.increment();
+
+            // 사용 중이면 반환될 때 닫힘
+            if (eldest.inUse) {
+                eldest.evicted = true;
+            } else {
+                closeQuietly(eldest.target);
+            }
+        }
+    }
+
+    void close() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.target);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignore) {}
+    }
+
+    private class CachedStatement implements InvocationHandler {
+        private final Key key;
+        private final PreparedStatement target;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+        private boolean evicted;
+        // RESETTABLE_SETTINGS 를 바꾸기 전의 값, 바꾸지 않았으면 null
+        private Settings original;
+        // UNRESETTABLE_SETTINGS 를 바꿨는지
+        private boolean unresettable;
+
+        private CachedStatement(Key key, PreparedStatement target) {
+            this.key = key;
+            this.target = target;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    giveBack();
+                    return null;
+                case "isClosed":
+                    return !inUse || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if (original == null && RESETTABLE_SETTINGS.contains(method.getName())) {
+                original = Settings.of(target);
+            } else if (UNRESETTABLE_SETTINGS.contains(method.getName())) {
+                unresettable = true;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * 다음 사용을 위해 상태를 비우고 캐시로 돌려놓음
+         */
+        private void giveBack() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+
+            if (evicted) {
+                closeQuietly(target);
+                return;
+            }
+            if (unresettable) {
+                statements.remove(key, this);
+                closeQuietly(target);
+                return;
+            }
+            try {
+                target.clearParameters();
+                target.clearBatch();
+                target.clearWarnings();
+                if (original != null) {
+                    original.restore(target);
+                    original = null;
+                }
+            } catch (SQLException e) {
+                // 재사용할 수 없는 상태면 캐시에서 빼버림
+                statements.remove(key, this);
+                closeQuietly(target);
+            }
+        }
+    }
+}
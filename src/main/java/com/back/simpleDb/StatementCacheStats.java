@@ -0,0 +1,12 @@
+package com.back.simpleDb;
+
+/**
+ * PreparedStatement 캐시 누적 통계
+ */
+public record StatementCacheStats(long hits, long misses, long evictions) {
+
+    public double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
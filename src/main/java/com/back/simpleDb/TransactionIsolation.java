@@ -0,0 +1,21 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+
+/**
+ * 트랜잭션 격리 수준 (DEFAULT 면 커넥션 / 서버 기본값을 그대로 사용)
+ */
+public enum TransactionIsolation {
+    DEFAULT(-1),
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    // java.sql.Connection.TRANSACTION_* 값
+    final int level;
+
+    TransactionIsolation(int level) {
+        this.level = level;
+    }
+}
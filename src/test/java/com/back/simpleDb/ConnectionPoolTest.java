@@ -0,0 +1,279 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:connectionPool__test;DB_CLOSE_DELAY=-1;" + Dialect.H2_OPTIONS;
+
+    // 풀이 만든 물리 커넥션 (생성 횟수 / 닫힘 여부 확인용)
+    private final List<Connection> created = new CopyOnWriteArrayList<>();
+    private ConnectionPool pool;
+
+    @BeforeAll
+    public static void beforeAll() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS pool_item (id INT PRIMARY KEY)");
+        }
+    }
+
+    @AfterEach
+    public void afterEach() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int minSize, int maxSize, long acquireTimeoutMillis,
+                                   long idleTimeoutMillis, long maxLifetimeMillis) {
+        pool = new ConnectionPool(() -> {
+            Connection conn = DriverManager.getConnection(URL, "sa", "");
+            created.add(conn);
+            return conn;
+        }, minSize, maxSize, acquireTimeoutMillis, idleTimeoutMillis, maxLifetimeMillis, 0);
+        return pool;
+    }
+
+    @Test
+    @DisplayName("maxSize 를 넘겨서 만들지 않고, 반납된 커넥션을 재사용")
+    public void t001() throws SQLException {
+        newPool(0, 2, 100, 60_000, 0);
+
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        assertThat(pool.getTotalCount()).isEqualTo(2);
+        assertThat(pool.getActiveCount()).isEqualTo(2);
+
+        assertThatThrownBy(pool::borrow).isInstanceOf(SQLTimeoutException.class);
+        assertThat(pool.getTotalCount()).isEqualTo(2);
+
+        first.close();
+        pool.borrow().close();
+        second.close();
+
+        assertThat(created).hasSize(2);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        assertThat(pool.getActiveCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("acquireTimeout 안에 반납되면 대기하던 borrow 가 받고, 아니면 SQLTimeoutException")
+    public void t002() throws Exception {
+        newPool(0, 1, 300, 60_000, 0);
+
+        Connection held = pool.borrow();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(pool::borrow)
+                .isInstanceOf(SQLTimeoutException.class)
+                .hasMessageContaining("300ms");
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(250);
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(50);
+        held.close();
+
+        waiting.get().close();
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("idleTimeout 이 지난 커넥션은 minSize 만 남기고 정리")
+    public void t003() throws Exception {
+        newPool(1, 3, 100, 50, 0);
+
+        Connection a = pool.borrow();
+        Connection b = pool.borrow();
+        Connection c = pool.borrow();
+        a.close();
+        b.close();
+        c.close();
+        assertThat(pool.getIdleCount()).isEqualTo(3);
+
+        Thread.sleep(100);
+        pool.evict();
+
+        assertThat(pool.getTotalCount()).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThat(created.stream().filter(this::isClosed).count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("maxLifetime 이 지난 커넥션은 borrow / evict 에서 버리고 새로 만듦")
+    public void t004() throws Exception {
+        newPool(0, 2, 100, 60_000, 50);
+
+        pool.borrow().close();
+        Thread.sleep(100);
+
+        // idle 에 있던 커넥션은 수명이 지났으므로 닫히고 새 커넥션을 받음
+        Connection conn = pool.borrow();
+        assertThat(created).hasSize(2);
+        assertThat(isClosed(created.get(0))).isTrue();
+
+        // 사용 중에 수명이 지나면 반납할 때 닫힘
+        Thread.sleep(100);
+        conn.close();
+        assertThat(isClosed(created.get(1))).isTrue();
+        assertThat(pool.getTotalCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("evict 는 minSize 까지 커넥션을 미리 채움")
+    public void t005() throws SQLException {
+        newPool(2, 4, 100, 60_000, 0);
+        assertThat(pool.getTotalCount()).isZero();
+
+        pool.evict();
+
+        assertThat(pool.getTotalCount()).isEqualTo(2);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        assertThat(created).hasSize(2);
+
+        // 미리 채운 커넥션을 그대로 사용
+        pool.borrow().close();
+        assertThat(created).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("반납한 커넥션 핸들은 더 이상 사용할 수 없음")
+    public void t006() throws SQLException {
+        newPool(0, 1, 100, 60_000, 0);
+
+        Connection conn = pool.borrow();
+        conn.close();
+        // 두 번 닫아도 한 번만 반납
+        conn.close();
+
+        assertThat(conn.isClosed()).isTrue();
+        assertThatThrownBy(conn::createStatement)
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("반납된 커넥션");
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+
+        // 물리 커넥션은 그대로 살아있고 다음 borrow 가 재사용
+        Connection next = pool.borrow();
+        assertThat(next.isClosed()).isFalse();
+        next.close();
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 도중 반납하면 rollback 후 autoCommit 을 되돌림")
+    public void t007() throws SQLException {
+        newPool(0, 1, 100, 60_000, 0);
+
+        Connection conn = pool.borrow();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO pool_item (id) VALUES (1)");
+        }
+        conn.close();
+
+        try (Connection next = pool.borrow();
+             Statement stmt = next.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM pool_item")) {
+            assertThat(next.getAutoCommit()).isTrue();
+            rs.next();
+            assertThat(rs.getLong(1)).isZero();
+        }
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("close 하면 idle 커넥션을 닫고 이후 borrow 는 실패")
+    public void t008() throws SQLException {
+        newPool(0, 2, 100, 60_000, 0);
+
+        Connection borrowed = pool.borrow();
+        pool.borrow().close();
+
+        pool.close();
+        assertThat(isClosed(created.get(1))).isTrue();
+        assertThatThrownBy(pool::borrow).hasMessageContaining("종료");
+
+        // 사용 중이던 커넥션은 반납할 때 닫힘
+        assertThat(isClosed(created.get(0))).isFalse();
+        borrowed.close();
+        assertThat(isClosed(created.get(0))).isTrue();
+        assertThat(pool.getTotalCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("반납할 때 바뀐 격리 수준을 만들 때 값으로 되돌림")
+    public void t009() throws SQLException {
+        newPool(0, 1, 100, 60_000, 0);
+
+        Connection conn = pool.borrow();
+        int baseIsolation = conn.getTransactionIsolation();
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        conn.close();
+
+        try (Connection next = pool.borrow()) {
+            assertThat(next.getTransactionIsolation()).isEqualTo(baseIsolation);
+        }
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("read only / 격리 수준을 되돌리지 못하면 커넥션을 버림")
+    public void t010() throws SQLException {
+        pool = new ConnectionPool(() -> {
+            Connection physical = DriverManager.getConnection(URL, "sa", "");
+            created.add(physical);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("setReadOnly") && !(Boolean) args[0]) {
+                            throw new SQLException("read only 해제 실패");
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }, 0, 1, 100, 60_000, 0, 0);
+
+        Connection conn = pool.borrow();
+        conn.setReadOnly(true);
+        conn.close();
+
+        assertThat(pool.getTotalCount()).isZero();
+        assertThat(isClosed(created.get(0))).isTrue();
+
+        pool.borrow().close();
+        assertThat(created).hasSize(2);
+    }
+
+    private boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.back.simpleDb;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.*;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -22,7 +40,12 @@ public class SimpleDbTest {
 
     @BeforeAll//테스트전에 한번만 -> 공통 데이터 세팅
     public static void beforeAll() {
-        simpleDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+        // -PtestDb=h2 면 MySQL 없이 embedded H2(MySQL 호환 모드)로 실행
+        if ("h2".equalsIgnoreCase(System.getProperty("simpleDb.test.db"))) {
+            simpleDb = SimpleDb.embedded("simpleDb__test");
+        } else {
+            simpleDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+        }
         simpleDb.setDevMode(true);
 
         createArticleTable();
@@ -44,6 +67,94 @@ public class SimpleDbTest {
                 """);
     }
 
+    /**
+     * 같은 테스트 DB 에 붙는 별도 SimpleDb (풀 / 로그 설정을 테스트마다 다르게 할 때)
+     */
+    private static SimpleDb newTestSimpleDb() {
+        if ("h2".equalsIgnoreCase(System.getProperty("simpleDb.test.db"))) {
+            return SimpleDb.embedded("simpleDb__test");
+        }
+        return new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    }
+
+    /**
+     * 같은 테스트 DB 에 붙지만 물리 커넥션의 methodName 호출을 failing 이 true 인 동안 실패시키는 SimpleDb
+     */
+    private static SimpleDb failingSimpleDb(String methodName, AtomicBoolean failing) {
+        boolean h2 = simpleDb.getDialect() == Dialect.H2;
+        String url = h2
+                ? "jdbc:h2:mem:simpleDb__test;DB_CLOSE_DELAY=-1;" + Dialect.H2_OPTIONS
+                : Dialect.MYSQL.jdbcUrl("localhost", 3306, "simpleDb__test");
+
+        return new SimpleDb(() -> {
+            Connection physical = h2
+                    ? DriverManager.getConnection(url, "sa", "")
+                    : DriverManager.getConnection(url, "root", "lldj123414");
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals(methodName) && failing.get()) {
+                            throw new SQLException("테스트용 " + methodName + " 실패");
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }, simpleDb.getDialect());
+    }
+
+    /**
+     * RowMapper 테스트용 (primitive / boxed / snake_case 컬럼)
+     */
+    static class MappedRow {
+        long id;
+        int viewCount;
+        Integer likeCount;
+        boolean pinned;
+        Boolean featured;
+        double score;
+        LocalDateTime createdAt;
+        String title;
+    }
+
+    /**
+     * id 1 은 모든 값이 NULL, id 2 는 모든 값이 채워진 mapped_row 테이블
+     * (extra_note 는 MappedRow 에 대응되는 필드가 없음)
+     */
+    private static void createMappedRowTable() {
+        simpleDb.run("DROP TABLE IF EXISTS mapped_row");
+        simpleDb.run("""
+                CREATE TABLE mapped_row (
+                    id INT UNSIGNED NOT NULL,
+                    PRIMARY KEY(id),
+                    view_count INT NULL,
+                    like_count INT NULL,
+                    pinned BIT(1) NULL,
+                    featured BIT(1) NULL,
+                    score DOUBLE NULL,
+                    created_at DATETIME NULL,
+                    title VARCHAR(100) NULL,
+                    extra_note VARCHAR(100) NULL
+                )
+                """);
+        simpleDb.run("INSERT INTO mapped_row SET id = 1");
+        simpleDb.run("""
+                INSERT INTO mapped_row
+                SET id = 2,
+                view_count = 7,
+                like_count = 3,
+                pinned = 1,
+                featured = 0,
+                score = 4.5,
+                created_at = '2024-05-06 07:08:09',
+                title = '제목',
+                extra_note = '무시됨'
+                """);
+    }
+
     private void truncateArticleTable() {
         simpleDb.run("TRUNCATE article");
     }
@@ -557,4 +668,1352 @@ public class SimpleDbTest {
         assertThat(newCount).isEqualTo(oldCount + 1);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("selectRowStream")
+    public void t020() {
+        Sql sql = simpleDb.genSql();
+        /*
+        == rawSql ==
+        SELECT *
+        FROM article
+        WHERE isBlind = false
+        ORDER BY id ASC
+        */
+        sql.append("SELECT * FROM article")
+                .append("WHERE isBlind = ?", false)
+                .append("ORDER BY id ASC");
+
+        try (Stream<Article> articles = sql.selectRowStream(Article.class)) {
+            List<Long> ids = articles.map(Article::getId).toList();
+
+            assertThat(ids).containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    @DisplayName("insertBatch")
+    public void t021() {
+        Sql sql = simpleDb.genSql();
+        /*
+        == rawSql ==
+        INSERT INTO article
+        SET createdDate = NOW(),
+        modifiedDate = NOW(),
+        title = ?,
+        body = ?
+        */
+        sql.append("INSERT INTO article")
+                .append("SET createdDate = NOW()")
+                .append(", modifiedDate = NOW()")
+                .append(", title = ?")
+                .append(", body = ?")
+                .batchSize(2);
+
+        IntStream.rangeClosed(1, 5).forEach(no -> sql.addBatch("배치 제목%d".formatted(no), "배치 내용%d".formatted(no)));
+
+        long[] newIds = sql.insertBatch();
+
+        assertThat(newIds).containsExactly(7L, 8L, 9L, 10L, 11L);
+
+        long count = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .append("WHERE title LIKE ?", "배치 제목%")
+                .selectLong();
+
+        assertThat(count).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("insertRows")
+    public void t022() {
+        List<Map<String, Object>> rows = IntStream.rangeClosed(1, 3)
+                .mapToObj(no -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("createdDate", LocalDateTime.now());
+                    row.put("modifiedDate", LocalDateTime.now());
+                    row.put("title", "다중 제목%d".formatted(no));
+                    row.put("body", "다중 내용%d".formatted(no));
+                    return row;
+                })
+                .toList();
+
+        /*
+        == rawSql ==
+        INSERT INTO `article` (`createdDate`, `modifiedDate`, `title`, `body`)
+        VALUES (?, ?, ?, ?), (?, ?, ?, ?), (?, ?, ?, ?)
+        */
+        long[] ids = simpleDb.genSql().insertRows("article", rows);
+
+        assertThat(ids).containsExactly(7L, 8L, 9L);
+
+        // 테이블 / 컬럼 이름은 인용해서 넣음
+        assertThat(Dialect.MYSQL.quoteIdentifier("simpleDb__test.article")).isEqualTo("`simpleDb__test`.`article`");
+        assertThat(Dialect.MYSQL.quoteIdentifier("a`b")).isEqualTo("`a``b`");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Dialect.MYSQL.quoteIdentifier("article."));
+    }
+
+    @Test
+    @DisplayName("selectRowAsync")
+    public void t023() {
+        List<CompletableFuture<Article>> futures = IntStream.rangeClosed(1, 6)
+                .mapToObj(id -> simpleDb.genSql()
+                        .append("SELECT * FROM article WHERE id = ?", id)
+                        .selectRowAsync(Article.class))
+                .toList();
+
+        List<Long> ids = futures.stream()
+                .map(CompletableFuture::join)
+                .map(Article::getId)
+                .toList();
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    @DisplayName("cached")
+    public void t024() {
+        /*
+        == rawSql ==
+        SELECT COUNT(*)
+        FROM article
+        WHERE isBlind = false
+        */
+        long count = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .append("WHERE isBlind = ?", false)
+                .cached()
+                .selectLong();
+
+        assertThat(count).isEqualTo(3);
+
+        // 같은 테이블에 쓰기가 일어나면 캐시가 무효화됨
+        simpleDb.genSql()
+                .append("UPDATE article")
+                .append("SET isBlind = ?", false)
+                .append("WHERE id = ?", 4)
+                .update();
+
+        long newCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .append("WHERE isBlind = ?", false)
+                .cached()
+                .selectLong();
+
+        assertThat(newCount).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("metrics")
+    public void t025() {
+        /*
+        == rawSql ==
+        SELECT id
+        FROM article
+        WHERE id > 3
+        */
+        for (int i = 0; i < 3; i++) {
+            simpleDb.genSql()
+                    .append("SELECT id")
+                    .append("FROM article")
+                    .append("WHERE id > ?", 3)
+                    .selectLongs();
+        }
+
+        List<SqlMetricSnapshot> snapshots = simpleDb.getMetrics().snapshot().stream()
+                .filter(s -> s.fingerprint().equals("SELECT id FROM article WHERE id > ?"))
+                .toList();
+
+        assertThat(snapshots)
+                .extracting(SqlMetricSnapshot::phase)
+                .contains(SqlPhase.PREPARE, SqlPhase.EXECUTE);
+        assertThat(snapshots)
+                .filteredOn(s -> s.phase() == SqlPhase.EXECUTE)
+                .singleElement()
+                .satisfies(s -> assertThat(s.count()).isGreaterThanOrEqualTo(3));
+        assertThat(simpleDb.getMetrics().toPrometheusText())
+                .contains("simpledb_sql_duration_seconds_count{fingerprint=\"SELECT id FROM article WHERE id > ?\",phase=\"execute\"}");
+    }
+
+    @Test
+    @DisplayName("slowQueries")
+    public void t026() {
+        simpleDb.setSlowQueryThresholdMillis(100);
+        simpleDb.clearSlowQueries();
+
+        try {
+            /*
+            == rawSql ==
+            SELECT SLEEP(0.2), id
+            FROM article
+            WHERE id = 1
+            */
+            simpleDb.genSql()
+                    .append("SELECT SLEEP(0.2), id")
+                    .append("FROM article")
+                    .append("WHERE id = ?", 1)
+                    .selectRows();
+
+            // 임계값보다 빠른 쿼리는 남지 않음
+            simpleDb.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .selectLong();
+
+            assertThat(simpleDb.getSlowQueries())
+                    .singleElement()
+                    .satisfies(slow -> {
+                        assertThat(slow.sql()).startsWith("SELECT SLEEP(0.2), id");
+                        assertThat(slow.params()).containsExactly(1);
+                        assertThat(slow.rowCount()).isEqualTo(1);
+                        assertThat(slow.elapsedMillis()).isGreaterThanOrEqualTo(100);
+                    });
+        } finally {
+            simpleDb.setSlowQueryThresholdMillis(0);
+        }
+    }
+
+    @Test
+    @DisplayName("compile")
+    public void t027() {
+        /*
+        == rawSql ==
+        SELECT *
+        FROM article
+        WHERE id = ?
+        */
+        CompiledSql articleById = simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .append("WHERE id = ?")
+                .compile();
+
+        assertThat(articleById.getPlaceholderCount()).isEqualTo(1);
+
+        // 같은 CompiledSql 을 파라미터만 바꿔 여러 번 실행
+        List<Long> ids = IntStream.rangeClosed(1, 3)
+                .mapToObj(id -> articleById.selectRow(Article.class, id))
+                .map(Article::getId)
+                .toList();
+
+        assertThat(ids).containsExactly(1L, 2L, 3L);
+        assertThat(articleById.bind(4).selectRow().get("title")).isEqualTo("제목4");
+    }
+
+    @Test
+    @DisplayName("appendIn, Collection / long[] / 임시 테이블")
+    public void t028() {
+        /*
+        == rawSql ==
+        SELECT COUNT(*)
+        FROM article
+        WHERE id IN (?, ?, ?, ?)
+        */
+        Sql sql = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .appendIn("WHERE id IN (?)", List.of(1L, 2L, 3L));
+
+        // placeholder 개수는 2의 거듭제곱으로 맞추고 마지막 값으로 채움
+        assertThat(sql.selectLong()).isEqualTo(3);
+
+        long count = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .appendIn("WHERE id IN (?)", new long[]{1, 2, 3, 4, 5})
+                .selectLong();
+
+        assertThat(count).isEqualTo(5);
+
+        long emptyCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .appendIn("WHERE id IN (?)", List.of())
+                .selectLong();
+
+        assertThat(emptyCount).isEqualTo(0);
+
+        /*
+        == rawSql ==
+        SELECT id
+        FROM article
+        WHERE id IN (SELECT v FROM simpledb_in_0)
+        ORDER BY id
+        */
+        int threshold = simpleDb.getInListTableThreshold();
+        simpleDb.setInListTableThreshold(2);
+        try {
+            List<Long> ids = simpleDb.genSql()
+                    .append("SELECT id")
+                    .append("FROM article")
+                    .appendIn("WHERE id IN (?)", List.of(4L, 2L, 6L, 100L))
+                    .append("ORDER BY id")
+                    .selectLongs();
+
+            assertThat(ids).containsExactly(2L, 4L, 6L);
+        } finally {
+            simpleDb.setInListTableThreshold(threshold);
+        }
+    }
+
+    @Test
+    @DisplayName("selectLongArray, selectLongList, selectIntArray, selectDoubleArray")
+    public void t029() {
+        /*
+        == rawSql ==
+        SELECT id
+        FROM article
+        WHERE id <= ?
+        ORDER BY id DESC
+        */
+        long[] ids = simpleDb.genSql()
+                .append("SELECT id")
+                .append("FROM article")
+                .append("WHERE id <= ?", 3)
+                .append("ORDER BY id DESC")
+                .selectLongArray();
+
+        assertThat(ids).containsExactly(3L, 2L, 1L);
+
+        LongList idList = simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id")
+                .selectLongList();
+
+        assertThat(idList.size()).isEqualTo(6);
+        assertThat(idList.get(0)).isEqualTo(1L);
+        assertThat(idList.stream().sum()).isEqualTo(21L);
+
+        int[] intIds = simpleDb.genSql()
+                .append("SELECT id FROM article WHERE id IN (1, 2) ORDER BY id")
+                .selectIntArray();
+
+        assertThat(intIds).containsExactly(1, 2);
+
+        double[] halves = simpleDb.genSql()
+                .append("SELECT id / 2.0 FROM article WHERE id IN (1, 2) ORDER BY id")
+                .selectDoubleArray();
+
+        assertThat(halves).containsExactly(0.5, 1.0);
+    }
+
+    @Test
+    @DisplayName("selectPage, iterateByKey (keyset pagination)")
+    public void t030() {
+        /*
+        == rawSql ==
+        SELECT * FROM (
+        SELECT *
+        FROM article
+        WHERE isBlind = ?
+        ) simpledb_keyset
+        WHERE `id` > ?
+        ORDER BY `id`
+        LIMIT ?
+        */
+        Page<Article> first = simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .append("WHERE isBlind = ?", false)
+                .selectPage(Article.class, "id", 2, null);
+
+        assertThat(first.content()).extracting(Article::getId).containsExactly(1L, 2L);
+        assertThat(first.hasNext()).isTrue();
+
+        Page<Article> second = simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .append("WHERE isBlind = ?", false)
+                .selectPage(Article.class, "id", 2, first.nextToken());
+
+        assertThat(second.content()).extracting(Article::getId).containsExactly(3L);
+        assertThat(second.hasNext()).isFalse();
+
+        Page<Map<String, Object>> desc = simpleDb.genSql()
+                .append("SELECT id, title FROM article")
+                .selectPage("id DESC", 4, null);
+
+        assertThat(desc.content()).extracting(row -> row.get("id")).containsExactly(6L, 5L, 4L, 3L);
+
+        List<Long> ids = new ArrayList<>();
+        simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .iterateByKey(Article.class, "id", 4)
+                .forEachRemaining(article -> ids.add(article.getId()));
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    @DisplayName("replica 라우팅, 트랜잭션 / read-your-writes 는 primary")
+    public void t031() {
+        // primary 와 같은 DB 를 replica 두 개로 등록해서 어디로 갔는지만 확인
+        SimpleDb.Builder builder = SimpleDb.builder();
+        if (simpleDb.getDialect() == Dialect.H2) {
+            String url = "jdbc:h2:mem:simpleDb__test;DB_CLOSE_DELAY=-1;" + Dialect.H2_OPTIONS;
+            builder.dialect(Dialect.H2).url(url).username("sa").replicaUrl(url).replicaUrl(url);
+        } else {
+            builder.host("localhost").dbName("simpleDb__test").username("root").password("lldj123414")
+                    .replica("localhost").replica("localhost");
+        }
+        SimpleDb routed = builder.build();
+        routed.setReadYourWritesWindowMillis(60_000);
+
+        try {
+            Runnable count = () -> routed.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+
+            count.run();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1, 0);
+
+            // 트랜잭션 안의 조회는 primary
+            routed.startTransaction();
+            count.run();
+            routed.rollback();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1, 0);
+
+            // 쓰기 직후 같은 스레드의 조회는 primary
+            routed.genSql().append("UPDATE article SET title = title WHERE id = ?", 1).update();
+            count.run();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1, 0);
+
+            // 다른 스레드는 쓰기를 하지 않았으므로 replica (round-robin 으로 두 번째)
+            CompletableFuture.runAsync(count).join();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1, 1);
+        } finally {
+            routed.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("inTransaction, deadlock 이면 재시도")
+    public void t032() {
+        long retriesBefore = simpleDb.getMetrics().getTransactionRetryCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        long count = simpleDb.inTransaction(() -> {
+            simpleDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 1)
+                    .delete();
+
+            // 첫 시도는 deadlock 으로 실패한 것처럼
+            if (attempts.incrementAndGet() == 1) {
+                throw new RuntimeException(new java.sql.SQLTransactionRollbackException("Deadlock found", "40001", 1213));
+            }
+            return simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article")
+                    .selectLong();
+        });
+
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(count).isEqualTo(5);
+        assertThat(simpleDb.getMetrics().getTransactionRetryCount()).isEqualTo(retriesBefore + 1);
+        assertThat(simpleDb.isInTransaction()).isFalse();
+
+        // 재시도 대상이 아닌 예외는 롤백 후 그대로 던짐
+        AtomicInteger failedAttempts = new AtomicInteger();
+        Assertions.assertThrows(IllegalStateException.class, () -> simpleDb.inTransaction(() -> {
+            failedAttempts.incrementAndGet();
+            simpleDb.genSql()
+                    .append("DELETE FROM article")
+                    .delete();
+            throw new IllegalStateException("실패");
+        }));
+
+        assertThat(failedAttempts.get()).isEqualTo(1);
+        assertThat(simpleDb.isInTransaction()).isFalse();
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("중첩 트랜잭션 (savepoint)")
+    public void t033() {
+        simpleDb.startTransaction();
+
+        simpleDb.genSql()
+                .append("DELETE FROM article WHERE id = ?", 1)
+                .delete();
+
+        // 안쪽 트랜잭션은 savepoint 까지만 롤백
+        simpleDb.startTransaction();
+        assertThat(simpleDb.getTransactionDepth()).isEqualTo(2);
+        simpleDb.genSql()
+                .append("DELETE FROM article WHERE id = ?", 2)
+                .delete();
+        simpleDb.rollback();
+
+        // 안쪽 inTransaction 이 실패해도 바깥 트랜잭션은 계속
+        Assertions.assertThrows(IllegalStateException.class, () -> simpleDb.inTransaction(() -> {
+            simpleDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 3)
+                    .delete();
+            throw new IllegalStateException("안쪽 실패");
+        }));
+
+        simpleDb.inTransaction(() -> simpleDb.genSql()
+                .append("DELETE FROM article WHERE id = ?", 4)
+                .delete());
+
+        assertThat(simpleDb.getTransactionDepth()).isEqualTo(1);
+        simpleDb.commit();
+
+        List<Long> ids = simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id")
+                .selectLongs();
+
+        assertThat(ids).containsExactly(2L, 3L, 5L, 6L);
+        assertThat(simpleDb.getTransactionDepth()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("READ ONLY 트랜잭션, 격리 수준")
+    public void t034() {
+        long count = simpleDb.inReadOnlyTransaction(() -> {
+            assertThat(simpleDb.isInReadOnlyTransaction()).isTrue();
+            return simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article")
+                    .selectLong();
+        });
+
+        assertThat(count).isEqualTo(6);
+        assertThat(simpleDb.isInReadOnlyTransaction()).isFalse();
+
+        // READ ONLY 안에서 쓰기 트랜잭션은 시작할 수 없음
+        simpleDb.startReadOnlyTransaction();
+        try {
+            Assertions.assertThrows(IllegalStateException.class, simpleDb::startTransaction);
+        } finally {
+            simpleDb.rollback();
+        }
+
+        simpleDb.startTransaction(TransactionIsolation.READ_COMMITTED);
+        try {
+            /*
+            == rawSql ==
+            UPDATE article
+            SET title = ?
+            WHERE id = ?
+            */
+            simpleDb.genSql()
+                    .append("UPDATE article")
+                    .append("SET title = ?", "READ COMMITTED")
+                    .append("WHERE id = ?", 1)
+                    .update();
+
+            // 같은 격리 수준 / DEFAULT 는 중첩 가능, 다른 격리 수준은 불가
+            simpleDb.startTransaction(TransactionIsolation.READ_COMMITTED);
+            simpleDb.commit();
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> simpleDb.startTransaction(TransactionIsolation.SERIALIZABLE));
+
+            simpleDb.commit();
+        } catch (RuntimeException e) {
+            simpleDb.rollback();
+            throw e;
+        }
+
+        assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString())
+                .isEqualTo("READ COMMITTED");
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서 run")
+    public void t035() {
+        simpleDb.startTransaction();
+        try {
+            // run 이 트랜잭션 커넥션을 닫지 않아야 이어서 실행 / 롤백할 수 있음
+            simpleDb.run("UPDATE article SET title = ? WHERE id = ?", "트랜잭션 안", 1);
+            simpleDb.run("DELETE FROM article WHERE id = 2");
+
+            assertThat(simpleDb.isInTransaction()).isTrue();
+            assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isEqualTo(5);
+        } finally {
+            simpleDb.rollback();
+        }
+
+        assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString())
+                .isEqualTo("제목1");
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("inTransaction 안에서 닫지 않은 startTransaction")
+    public void t036() {
+        // 성공: 닫지 않은 안쪽 savepoint 까지 포함해서 커밋하고 커넥션 반납
+        simpleDb.inTransaction(() -> {
+            simpleDb.startTransaction();
+            simpleDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 1)
+                    .delete();
+        });
+
+        assertThat(simpleDb.isInTransaction()).isFalse();
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isEqualTo(5);
+
+        // 실패: 안쪽 savepoint 뿐 아니라 전체를 롤백하고 커넥션 반납
+        Assertions.assertThrows(IllegalStateException.class, () -> simpleDb.inTransaction(() -> {
+            simpleDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 2)
+                    .delete();
+            simpleDb.startTransaction();
+            simpleDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 3)
+                    .delete();
+            throw new IllegalStateException("실패");
+        }));
+
+        assertThat(simpleDb.isInTransaction()).isFalse();
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isEqualTo(5);
+
+        // 중첩 inTransaction 도 자기 depth 까지만 정리
+        simpleDb.startTransaction();
+        try {
+            Assertions.assertThrows(IllegalStateException.class, () -> simpleDb.inTransaction(() -> {
+                simpleDb.startTransaction();
+                simpleDb.genSql()
+                        .append("DELETE FROM article WHERE id = ?", 4)
+                        .delete();
+                throw new IllegalStateException("안쪽 실패");
+            }));
+            assertThat(simpleDb.getTransactionDepth()).isEqualTo(1);
+
+            simpleDb.inTransaction(() -> {
+                simpleDb.startTransaction();
+                simpleDb.genSql()
+                        .append("DELETE FROM article WHERE id = ?", 5)
+                        .delete();
+            });
+            assertThat(simpleDb.getTransactionDepth()).isEqualTo(1);
+            simpleDb.commit();
+        } finally {
+            simpleDb.rollback();
+        }
+
+        List<Long> ids = simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id")
+                .selectLongs();
+
+        assertThat(ids).containsExactly(2L, 3L, 4L, 6L);
+    }
+
+    @Test
+    @DisplayName("cached, 콤마 조인의 두 번째 테이블에 쓰기가 일어나도 무효화")
+    public void t037() {
+        simpleDb.run("DROP TABLE IF EXISTS article_tag");
+        simpleDb.run("""
+                CREATE TABLE article_tag (
+                    articleId INT UNSIGNED NOT NULL,
+                    tag VARCHAR(20) NOT NULL
+                )
+                """);
+        simpleDb.run("INSERT INTO article_tag (articleId, tag) VALUES (?, ?)", 1, "java");
+
+        assertThat(QueryCache.tablesOf("SELECT * FROM article a, article_tag t WHERE a.id = t.articleId"))
+                .containsExactly("article", "article_tag");
+        assertThat(QueryCache.tablesOf("SELECT * FROM article WHERE id = 1 FOR UPDATE"))
+                .containsExactly("article");
+        assertThat(QueryCache.tablesOf("SELECT * FROM ? x"))
+                .contains(QueryCache.UNKNOWN_TABLES);
+
+        /*
+        == rawSql ==
+        SELECT COUNT(*)
+        FROM article a, article_tag t
+        WHERE a.id = t.articleId
+        */
+        Supplier<Long> count = () -> simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article a, article_tag t")
+                .append("WHERE a.id = t.articleId")
+                .cached()
+                .selectLong();
+
+        assertThat(count.get()).isEqualTo(1);
+
+        simpleDb.run("INSERT INTO article_tag (articleId, tag) VALUES (?, ?)", 2, "db");
+
+        assertThat(count.get()).isEqualTo(2);
+        simpleDb.run("DROP TABLE article_tag");
+    }
+
+    @Test
+    @DisplayName("쓰기 직후 cached 조회는 다른 스레드여도 primary 에서 읽어서 캐싱")
+    public void t038() {
+        SimpleDb.Builder builder = SimpleDb.builder();
+        if (simpleDb.getDialect() == Dialect.H2) {
+            String url = "jdbc:h2:mem:simpleDb__test;DB_CLOSE_DELAY=-1;" + Dialect.H2_OPTIONS;
+            builder.dialect(Dialect.H2).url(url).username("sa").replicaUrl(url);
+        } else {
+            builder.host("localhost").dbName("simpleDb__test").username("root").password("lldj123414")
+                    .replica("localhost");
+        }
+        SimpleDb routed = builder.build();
+        routed.setReadYourWritesWindowMillis(60_000);
+
+        try {
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            */
+            Runnable cachedCount = () -> routed.genSql().append("SELECT COUNT(*) FROM article").cached().selectLong();
+            Runnable count = () -> routed.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+
+            // 아직 쓰기가 없으므로 캐시를 채우는 조회도 replica
+            CompletableFuture.runAsync(cachedCount).join();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1);
+
+            routed.genSql().append("UPDATE article SET title = title WHERE id = ?", 1).update();
+
+            // 다른 스레드라도 캐시에 넣을 결과는 primary 에서 (replica 지연 데이터를 캐싱하지 않음)
+            CompletableFuture.runAsync(cachedCount).join();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(1);
+
+            // 캐시를 쓰지 않는 조회는 그대로 replica
+            CompletableFuture.runAsync(count).join();
+            assertThat(routed.getReplicaBorrowedCounts()).containsExactly(2);
+        } finally {
+            routed.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안의 큰 appendIn 은 임시 테이블 대신 placeholder (트랜잭션이 커밋되지 않음)")
+    public void t039() {
+        int threshold = simpleDb.getInListTableThreshold();
+        simpleDb.setInListTableThreshold(2);
+        try {
+            simpleDb.startTransaction();
+            try {
+                simpleDb.genSql()
+                        .append("DELETE FROM article WHERE id = ?", 1)
+                        .delete();
+
+                /*
+                == rawSql ==
+                SELECT id
+                FROM article
+                WHERE id IN (?, ?, ?, ?)
+                ORDER BY id
+                */
+                List<Long> ids = simpleDb.genSql()
+                        .append("SELECT id")
+                        .append("FROM article")
+                        .appendIn("WHERE id IN (?)", List.of(1L, 2L, 3L, 4L))
+                        .append("ORDER BY id")
+                        .selectLongs();
+
+                assertThat(ids).containsExactly(2L, 3L, 4L);
+            } finally {
+                simpleDb.rollback();
+            }
+
+            // 임시 테이블 DDL 로 커밋되지 않았으므로 롤백됨
+            long count = simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article WHERE id = ?", 1)
+                    .selectLong();
+            assertThat(count).isEqualTo(1);
+
+            // 트랜잭션 밖에서 임시 테이블로 만든 Sql 을 트랜잭션 안에서 실행하면 거부
+            Sql outside = simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article")
+                    .appendIn("WHERE id IN (?)", List.of(1L, 2L, 3L, 4L));
+            simpleDb.startTransaction();
+            try {
+                Assertions.assertThrows(IllegalStateException.class, outside::selectLong);
+            } finally {
+                simpleDb.rollback();
+            }
+
+            // 임시 테이블로 처리할 수 없는 값이 placeholder 최대 개수를 넘으면 거부
+            List<Double> doubles = IntStream.rangeClosed(0, MultiRowInsert.MAX_PLACEHOLDERS)
+                    .mapToObj(i -> (double) i)
+                    .toList();
+            Assertions.assertThrows(IllegalArgumentException.class, () -> simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article")
+                    .appendIn("WHERE id IN (?)", doubles));
+        } finally {
+            simpleDb.setInListTableThreshold(threshold);
+        }
+    }
+
+    @Test
+    @DisplayName("metrics, 에러는 실패한 구간으로 기록 / le 라벨은 고정 소수")
+    public void t040() {
+        // 드라이버가 없는 URL -> 커넥션 획득(acquire) 에서 실패
+        SimpleDb broken = SimpleDb.builder()
+                .dialect(Dialect.H2)
+                .url("jdbc:simpledb-missing:test")
+                .username("sa")
+                .build();
+
+        try {
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            */
+            Assertions.assertThrows(RuntimeException.class, () -> broken.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .selectLong());
+
+            assertThat(broken.getMetrics().snapshot())
+                    .filteredOn(s -> s.fingerprint().equals("SELECT COUNT(*) FROM article"))
+                    .singleElement()
+                    .satisfies(s -> {
+                        assertThat(s.phase()).isEqualTo(SqlPhase.ACQUIRE);
+                        assertThat(s.errors()).isEqualTo(1);
+                        assertThat(s.count()).isZero();
+                    });
+            assertThat(broken.getMetrics().toPrometheusText())
+                    .contains("simpledb_sql_errors_total{fingerprint=\"SELECT COUNT(*) FROM article\",phase=\"acquire\"} 1");
+        } finally {
+            broken.shutdown();
+        }
+
+        simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+        assertThat(simpleDb.getMetrics().toPrometheusText())
+                .contains("le=\"0.0001\"", "le=\"0.00025\"", "le=\"1\"", "le=\"2.5\"")
+                .doesNotContain("E-");
+    }
+
+    @Test
+    @DisplayName("H2 nativeSql 변환은 문자열 리터럴 / 인용된 식별자 / 주석 안을 건드리지 않음")
+    public void t041() {
+        assertThat(Dialect.H2.nativeSql("CREATE TABLE t (id INT UNSIGNED, memo VARCHAR(20) DEFAULT 'INT UNSIGNED')"))
+                .isEqualTo("CREATE TABLE t (id BIGINT, memo VARCHAR(20) DEFAULT 'INT UNSIGNED')");
+        assertThat(Dialect.H2.nativeSql("SELECT 1 /* INT UNSIGNED */ -- INT UNSIGNED\nFROM `INT UNSIGNED`"))
+                .isEqualTo("SELECT 1 /* INT UNSIGNED */ -- INT UNSIGNED\nFROM `INT UNSIGNED`");
+
+        // 이어 쓴 리터럴만 || 로 연결, 주석 안의 ' / ? 는 무시
+        assertThat(Dialect.H2.nativeSql("SELECT ? '%' -- it's ? 'x'\nFROM article WHERE title = 'a''b' 'c'"))
+                .isEqualTo("SELECT ? || '%' -- it's ? 'x'\nFROM article WHERE title = 'a''b' || 'c'");
+        assertThat(Dialect.H2.nativeSql("SELECT `?` 'a', \"?\" 'b'"))
+                .isEqualTo("SELECT `?` 'a', \"?\" 'b'");
+
+        /*
+        == rawSql ==
+        SELECT COUNT(*)
+        FROM article
+        WHERE title <> 'INT UNSIGNED' -- it's
+        */
+        long count = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .append("WHERE title <> 'INT UNSIGNED' -- it's")
+                .selectLong();
+
+        assertThat(count).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("slowQueries, 커넥션 획득 대기는 실행 시간에서 빼고 따로 기록")
+    public void t042() throws Exception {
+        SimpleDb single = newTestSimpleDb();
+        single.setPoolMinSize(1);
+        single.setPoolMaxSize(1);
+        single.setSlowQueryThresholdMillis(100);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 다른 스레드가 하나뿐인 커넥션을 300ms 동안 잡고 있음
+            CountDownLatch holding = new CountDownLatch(1);
+            CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+                single.startTransaction();
+                try {
+                    holding.countDown();
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    single.rollback();
+                }
+            }, executor);
+            holding.await();
+
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            */
+            single.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .selectLong();
+            holder.join();
+
+            // 대기만 길었던 쿼리는 느린 쿼리가 아님
+            assertThat(single.getSlowQueries()).isEmpty();
+
+            /*
+            == rawSql ==
+            SELECT SLEEP(0.2), id
+            FROM article
+            WHERE id = 1
+            */
+            single.genSql()
+                    .append("SELECT SLEEP(0.2), id")
+                    .append("FROM article")
+                    .append("WHERE id = ?", 1)
+                    .selectRows();
+
+            assertThat(single.getSlowQueries())
+                    .singleElement()
+                    .satisfies(slow -> {
+                        assertThat(slow.elapsedMillis()).isGreaterThanOrEqualTo(100);
+                        assertThat(slow.acquireMillis()).isLessThan(100);
+                    });
+        } finally {
+            executor.shutdownNow();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("JFR 이벤트, 기록 중일 때만 만들고 꺼져 있으면 할당하지 않음")
+    public void t043() throws Exception {
+        // 기록 중이 아니면 이벤트 객체를 만들지 않음
+        assertThat(SqlEvents.begin(SqlPhase.EXECUTE)).isNull();
+        assertThat(SqlEvents.beginTransaction("begin", 1)).isNull();
+
+        Path file = Files.createTempFile("simpleDb", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.back.simpleDb.StatementExecute").withThreshold(Duration.ZERO);
+            recording.start();
+
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            */
+            simpleDb.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .selectLong();
+
+            recording.stop();
+            recording.dump(file);
+
+            assertThat(RecordingFile.readAllEvents(file))
+                    .filteredOn(e -> e.getEventType().getName().equals("com.back.simpleDb.StatementExecute"))
+                    .extracting(e -> e.getString("fingerprint"))
+                    .contains("SELECT COUNT(*) FROM article");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("commit 이 실패하면 rollback 하고 반납 (autoCommit 을 켜면서 커밋되지 않음)")
+    public void t044() {
+        AtomicBoolean failing = new AtomicBoolean();
+        SimpleDb failingDb = failingSimpleDb("commit", failing);
+
+        try {
+            failingDb.startTransaction();
+            failingDb.genSql()
+                    .append("DELETE FROM article WHERE id = ?", 1)
+                    .delete();
+
+            failing.set(true);
+            Assertions.assertThrows(RuntimeException.class, failingDb::commit);
+            failing.set(false);
+
+            assertThat(failingDb.isInTransaction()).isFalse();
+
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            WHERE id = 1
+            */
+            long count = simpleDb.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .append("WHERE id = ?", 1)
+                    .selectLong();
+
+            assertThat(count).isEqualTo(1);
+        } finally {
+            failingDb.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안의 cached 조회는 공유 캐시를 읽지도 채우지도 않음 (REPEATABLE READ 스냅샷이 새지 않음)")
+    public void t045() throws Exception {
+        Supplier<Long> countNotBlind = () -> simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .append("WHERE isBlind = ?", false)
+                .cached()
+                .selectLong();
+        int cacheSize = simpleDb.getQueryCache().size();
+
+        simpleDb.startTransaction(TransactionIsolation.REPEATABLE_READ);
+        try {
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            WHERE isBlind = false
+            */
+            assertThat(countNotBlind.get()).isEqualTo(3);
+
+            // 다른 스레드가 커밋 -> 캐시 무효화, 트랜잭션은 여전히 옛 스냅샷을 볼 수 있음
+            CompletableFuture.runAsync(() -> simpleDb.genSql()
+                    .append("UPDATE article")
+                    .append("SET isBlind = ?", false)
+                    .append("WHERE id = ?", 4)
+                    .update()).get();
+
+            countNotBlind.get();
+            assertThat(simpleDb.getQueryCache().size()).isEqualTo(cacheSize);
+        } finally {
+            simpleDb.rollback();
+        }
+
+        assertThat(countNotBlind.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("queryLog, redactor 가 가린 파라미터로 기록하고 shutdown 하면 남은 로그를 flush")
+    public void t046() {
+        List<QueryLogEntry> entries = new CopyOnWriteArrayList<>();
+        SimpleDb logged = newTestSimpleDb();
+        logged.setQueryLogWriter(entries::add);
+        logged.setQueryLogRedactor((sql, index, value) -> index == 2 ? "****" : value);
+
+        /*
+        == rawSql ==
+        SELECT id
+        FROM article
+        WHERE id = 1
+        AND title = '제목1'
+        */
+        long id = logged.genSql()
+                .append("SELECT id")
+                .append("FROM article")
+                .append("WHERE id = ?", 1)
+                .append("AND title = ?", "제목1")
+                .selectLong();
+        assertThat(id).isEqualTo(1);
+
+        // 백그라운드 스레드가 아직 쓰지 않았어도 shutdown 이 다 쓰고 끝남
+        logged.shutdown();
+
+        assertThat(entries)
+                .singleElement()
+                .satisfies(entry -> {
+                    assertThat(entry.sql()).contains("WHERE id = ?");
+                    assertThat(entry.params()).containsExactly(1, "****");
+                    assertThat(entry.rowCount()).isEqualTo(1);
+                    assertThat(entry.failed()).isFalse();
+                });
+    }
+
+    @Test
+    @DisplayName("queryLog, sampleRate 가 0 이면 성공한 쿼리는 버리고 실패한 쿼리만 기록")
+    public void t047() {
+        List<QueryLogEntry> entries = new CopyOnWriteArrayList<>();
+        SimpleDb logged = newTestSimpleDb();
+        logged.setQueryLogWriter(entries::add);
+        logged.setQueryLogSampleRate(0.0);
+
+        for (int i = 0; i < 20; i++) {
+            /*
+            == rawSql ==
+            SELECT COUNT(*)
+            FROM article
+            */
+            logged.genSql()
+                    .append("SELECT COUNT(*)")
+                    .append("FROM article")
+                    .selectLong();
+        }
+        Assertions.assertThrows(RuntimeException.class, () -> logged.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM no_such_table")
+                .selectLong());
+
+        logged.shutdown();
+
+        assertThat(entries)
+                .singleElement()
+                .satisfies(entry -> {
+                    assertThat(entry.sql()).contains("no_such_table");
+                    assertThat(entry.failed()).isTrue();
+                });
+        assertThat(logged.getDroppedQueryLogCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("queryLog, 버퍼가 가득 차면 쿼리를 막지 않고 버린 수를 셈")
+    public void t048() throws Exception {
+        List<QueryLogEntry> entries = new CopyOnWriteArrayList<>();
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleDb logged = newTestSimpleDb();
+        logged.setQueryLogCapacity(1);
+        long dropped;
+        logged.setQueryLogWriter(entry -> {
+            writerBlocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            entries.add(entry);
+        });
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                /*
+                == rawSql ==
+                SELECT COUNT(*)
+                FROM article
+                */
+                logged.genSql()
+                        .append("SELECT COUNT(*)")
+                        .append("FROM article")
+                        .selectLong();
+            }
+            assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // writer 가 1건을 잡고 있고 버퍼에 1건, 나머지는 버려짐
+            dropped = logged.getDroppedQueryLogCount();
+            assertThat(dropped).isBetween(8L, 9L);
+        } finally {
+            release.countDown();
+            logged.shutdown();
+        }
+
+        // 버려지지 않은 로그는 shutdown 에서 모두 기록됨
+        assertThat(entries).hasSize((int) (10 - dropped));
+    }
+
+    @Test
+    @DisplayName("selectRows(Class), NULL / boxed / LocalDateTime / snake_case 컬럼 매핑")
+    public void t049() {
+        createMappedRowTable();
+
+        try {
+            /*
+            == rawSql ==
+            SELECT *
+            FROM mapped_row
+            ORDER BY id
+            */
+            List<MappedRow> rows = simpleDb.genSql()
+                    .append("SELECT *")
+                    .append("FROM mapped_row")
+                    .append("ORDER BY id")
+                    .selectRows(MappedRow.class);
+
+            assertThat(rows).hasSize(2);
+
+            // NULL 이면 primitive 는 기본값 유지, boxed / 객체는 null
+            MappedRow empty = rows.get(0);
+            assertThat(empty.id).isEqualTo(1);
+            assertThat(empty.viewCount).isZero();
+            assertThat(empty.likeCount).isNull();
+            assertThat(empty.pinned).isFalse();
+            assertThat(empty.featured).isNull();
+            assertThat(empty.score).isZero();
+            assertThat(empty.createdAt).isNull();
+            assertThat(empty.title).isNull();
+
+            // view_count -> viewCount, created_at -> createdAt, extra_note 는 무시
+            MappedRow filled = rows.get(1);
+            assertThat(filled.id).isEqualTo(2);
+            assertThat(filled.viewCount).isEqualTo(7);
+            assertThat(filled.likeCount).isEqualTo(3);
+            assertThat(filled.pinned).isTrue();
+            assertThat(filled.featured).isFalse();
+            assertThat(filled.score).isEqualTo(4.5);
+            assertThat(filled.createdAt).isEqualTo(LocalDateTime.of(2024, 5, 6, 7, 8, 9));
+            assertThat(filled.title).isEqualTo("제목");
+        } finally {
+            simpleDb.run("DROP TABLE IF EXISTS mapped_row");
+        }
+    }
+
+    @Test
+    @DisplayName("cached selectRows(Class) 는 캐시에 넣은 값(mapValues)으로도 같은 객체를 만듦")
+    public void t050() {
+        createMappedRowTable();
+
+        try {
+            /*
+            == rawSql ==
+            SELECT *
+            FROM mapped_row
+            ORDER BY id
+            */
+            Supplier<Sql> sql = () -> simpleDb.genSql()
+                    .append("SELECT *")
+                    .append("FROM mapped_row")
+                    .append("ORDER BY id");
+
+            List<MappedRow> mapped = sql.get().selectRows(MappedRow.class);
+            // 첫 번째는 캐시를 채우고, 두 번째는 캐시에서 꺼냄
+            List<MappedRow> fromQuery = sql.get().cached().selectRows(MappedRow.class);
+            List<MappedRow> fromCache = sql.get().cached().selectRows(MappedRow.class);
+
+            assertThat(fromQuery).usingRecursiveFieldByFieldElementComparator().isEqualTo(mapped);
+            assertThat(fromCache).usingRecursiveFieldByFieldElementComparator().isEqualTo(mapped);
+            assertThat(fromCache.get(0)).isNotSameAs(fromQuery.get(0));
+        } finally {
+            simpleDb.run("DROP TABLE IF EXISTS mapped_row");
+        }
+    }
+
+    @Test
+    @DisplayName("JDK 21 미만의 기본 비동기 executor 는 poolMaxSize 개 스레드 + 제한된 큐, 넘치면 호출 스레드가 실행")
+    public void t051() throws Exception {
+        Assumptions.assumeTrue(Runtime.version().feature() < 21, "JDK 21+ 는 가상 스레드 executor");
+
+        ExecutorService executor = SimpleDb.newDefaultAsyncExecutor(2);
+        try {
+            assertThat(executor).isInstanceOf(ThreadPoolExecutor.class);
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            assertThat(pool.getMaximumPoolSize()).isEqualTo(2);
+            assertThat(pool.getQueue().remainingCapacity()).isEqualTo(64);
+
+            // 스레드 2개와 큐 64칸을 막아두면 다음 작업은 호출한 스레드에서 실행됨
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 2 + 64; i++) {
+                executor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Thread caller = Thread.currentThread();
+            CompletableFuture<Thread> ranOn = CompletableFuture.supplyAsync(Thread::currentThread, executor);
+            assertThat(ranOn.get()).isSameAs(caller);
+            assertThat(pool.getPoolSize()).isEqualTo(2);
+
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("insertRows, 여러 chunk 로 나뉘면 한 트랜잭션으로 묶어서 뒤 chunk 가 실패하면 전부 rollback")
+    public void t052() {
+        // placeholder 제한(65535 / 컬럼 4개)을 넘겨서 두 문장으로 나뉘고, 마지막 row 는 title 이 너무 길어 실패
+        int rowCount = MultiRowInsert.MAX_PLACEHOLDERS / 4 + 1;
+        List<Map<String, Object>> rows = IntStream.rangeClosed(1, rowCount)
+                .mapToObj(no -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("createdDate", LocalDateTime.now());
+                    row.put("modifiedDate", LocalDateTime.now());
+                    row.put("title", no < rowCount ? "대량 제목" : "긴 제목".repeat(100));
+                    row.put("body", "대량 내용");
+                    return row;
+                })
+                .toList();
+
+        /*
+        == rawSql ==
+        INSERT INTO `article` (`createdDate`, `modifiedDate`, `title`, `body`)
+        VALUES (?, ?, ?, ?), (?, ?, ?, ?), ...
+        */
+        Assertions.assertThrows(RuntimeException.class, () -> simpleDb.genSql().insertRows("article", rows));
+
+        long count = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+        assertThat(count).isEqualTo(6);
+        assertThat(simpleDb.isInTransaction()).isFalse();
+    }
+
+    @Test
+    @DisplayName("insertRows 도 prepare / execute 구간 메트릭에 기록")
+    public void t053() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("createdDate", LocalDateTime.now());
+        row.put("modifiedDate", LocalDateTime.now());
+        row.put("title", "메트릭 제목");
+        row.put("body", "메트릭 내용");
+
+        /*
+        == rawSql ==
+        INSERT INTO `article` (`createdDate`, `modifiedDate`, `title`, `body`)
+        VALUES (?, ?, ?, ?)
+        */
+        simpleDb.genSql().insertRows("article", List.of(row));
+
+        assertThat(simpleDb.getMetrics().snapshot())
+                .filteredOn(s -> s.fingerprint().startsWith("INSERT INTO") && s.fingerprint().contains("VALUES"))
+                .extracting(SqlMetricSnapshot::phase)
+                .contains(SqlPhase.PREPARE, SqlPhase.EXECUTE);
+    }
+
+    @Test
+    @DisplayName("selectPage, 원래 쿼리에 ORDER BY / LIMIT 이 있으면 거부 (서브쿼리 / 리터럴 / 주석 안은 허용)")
+    public void t054() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .append("ORDER BY id DESC")
+                .selectPage(Article.class, "id", 2, null));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .append("LIMIT ?", 3)
+                .selectPage(Article.class, "id", 2, null));
+
+        /*
+        == rawSql ==
+        SELECT * FROM (
+        SELECT *
+        FROM article
+        WHERE id IN (SELECT id FROM (SELECT id FROM article ORDER BY id LIMIT 100) ids)
+        AND title <> 'order by' -- limit
+        ) simpledb_keyset
+        ORDER BY `id`
+        LIMIT ?
+        */
+        Page<Article> page = simpleDb.genSql()
+                .append("SELECT *")
+                .append("FROM article")
+                .append("WHERE id IN (SELECT id FROM (SELECT id FROM article ORDER BY id LIMIT 100) ids)")
+                .append("AND title <> 'order by' -- limit")
+                .selectPage(Article.class, "id", 2, null);
+
+        assertThat(page.content()).extracting(Article::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("metrics, fingerprint 종류가 최대 개수를 넘으면 other 로 묶음")
+    public void t055() {
+        SqlMetrics metrics = new SqlMetrics(2);
+
+        metrics.record("SELECT * FROM article WHERE id = 1", SqlPhase.EXECUTE, 1_000);
+        metrics.record("SELECT * FROM article WHERE id = 2", SqlPhase.EXECUTE, 1_000);
+        metrics.record("SELECT title FROM article", SqlPhase.EXECUTE, 1_000);
+        // 자리가 다 찼으므로 새 fingerprint 는 other
+        metrics.record("SELECT body FROM article", SqlPhase.EXECUTE, 1_000);
+        metrics.record("SELECT id FROM article", SqlPhase.EXECUTE, 1_000);
+        metrics.recordError("SELECT id FROM article", SqlPhase.EXECUTE);
+        // 이미 기록 중인 fingerprint 는 그대로
+        metrics.record("SELECT title FROM article", SqlPhase.PREPARE, 1_000);
+
+        assertThat(metrics.snapshot())
+                .extracting(SqlMetricSnapshot::fingerprint)
+                .containsOnly("SELECT * FROM article WHERE id = ?", "SELECT title FROM article", SqlMetrics.OTHER_FINGERPRINT);
+        assertThat(metrics.snapshot())
+                .filteredOn(s -> s.fingerprint().equals(SqlMetrics.OTHER_FINGERPRINT))
+                .singleElement()
+                .satisfies(s -> {
+                    assertThat(s.count()).isEqualTo(2);
+                    assertThat(s.errors()).isEqualTo(1);
+                });
+    }
+}
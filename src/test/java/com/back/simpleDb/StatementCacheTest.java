@@ -0,0 +1,217 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class StatementCacheTest {
+    private static final String URL = "jdbc:h2:mem:statementCache__test;DB_CLOSE_DELAY=-1;" + Dialect.H2_OPTIONS;
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void afterEach() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * 물리 close 를 무시하는 커넥션을 주는 풀
+     * (드라이버가 커넥션과 함께 statement 를 닫아버리면 캐시가 닫았는지 구분할 수 없으므로)
+     */
+    private ConnectionPool newPool(int statementCacheSize, long maxLifetimeMillis) {
+        pool = new ConnectionPool(() -> {
+            Connection physical = DriverManager.getConnection(URL, "sa", "");
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close")) {
+                            return null;
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }, 0, 1, 100, 60_000, maxLifetimeMillis, statementCacheSize);
+        return pool;
+    }
+
+    /**
+     * 캐시 프록시 안의 실제 statement 를 꺼내고 캐시에 돌려놓음
+     */
+    private PreparedStatement prepareAndGiveBack(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        PreparedStatement target = pstmt.unwrap(PreparedStatement.class);
+        pstmt.close();
+        return target;
+    }
+
+    @Test
+    @DisplayName("같은 SQL 은 hit, 새 SQL 은 miss")
+    public void t001() throws SQLException {
+        newPool(8, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement first = prepareAndGiveBack(conn, "SELECT 1");
+            PreparedStatement second = prepareAndGiveBack(conn, "SELECT 1");
+            prepareAndGiveBack(conn, "SELECT 2");
+
+            assertThat(second).isSameAs(first);
+            assertThat(first.isClosed()).isFalse();
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(1, 2, 0));
+    }
+
+    @Test
+    @DisplayName("generatedKeys 옵션이 다르면 다른 statement")
+    public void t002() throws SQLException {
+        newPool(8, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement plain = prepareAndGiveBack(conn, "SELECT 1");
+
+            PreparedStatement pstmt = conn.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement withKeys = pstmt.unwrap(PreparedStatement.class);
+            pstmt.close();
+
+            assertThat(withKeys).isNotSameAs(plain);
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(0, 2, 0));
+    }
+
+    @Test
+    @DisplayName("statementCacheSize 를 넘으면 가장 오래 안 쓴 statement 를 닫고 제거 (LRU)")
+    public void t003() throws SQLException {
+        newPool(2, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement a = prepareAndGiveBack(conn, "SELECT 1");
+            PreparedStatement b = prepareAndGiveBack(conn, "SELECT 2");
+            // a 를 다시 써서 b 가 가장 오래된 것이 됨
+            prepareAndGiveBack(conn, "SELECT 1");
+            PreparedStatement c = prepareAndGiveBack(conn, "SELECT 3");
+
+            assertThat(b.isClosed()).isTrue();
+            assertThat(a.isClosed()).isFalse();
+            assertThat(c.isClosed()).isFalse();
+
+            // a 는 캐시에 남아있고 b 는 다시 만들어짐
+            assertThat(prepareAndGiveBack(conn, "SELECT 1")).isSameAs(a);
+            assertThat(prepareAndGiveBack(conn, "SELECT 2")).isNotSameAs(b);
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(2, 4, 2));
+    }
+
+    @Test
+    @DisplayName("사용 중에 밀려난 statement 는 반납할 때 닫힘")
+    public void t004() throws SQLException {
+        newPool(1, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement inUse = conn.prepareStatement("SELECT 1");
+            PreparedStatement target = inUse.unwrap(PreparedStatement.class);
+
+            prepareAndGiveBack(conn, "SELECT 2");
+            assertThat(target.isClosed()).isFalse();
+
+            inUse.close();
+            assertThat(target.isClosed()).isTrue();
+        }
+
+        assertThat(pool.getStatementCacheStats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("풀이 물리 커넥션을 버리면 캐시된 statement 도 닫힘")
+    public void t005() throws Exception {
+        newPool(8, 50);
+
+        PreparedStatement cached;
+        try (Connection conn = pool.borrow()) {
+            cached = prepareAndGiveBack(conn, "SELECT 1");
+        }
+        assertThat(cached.isClosed()).isFalse();
+
+        // maxLifetime 이 지나면 다음 borrow 에서 버려짐
+        Thread.sleep(100);
+        try (Connection conn = pool.borrow()) {
+            assertThat(cached.isClosed()).isTrue();
+            assertThat(prepareAndGiveBack(conn, "SELECT 1")).isNotSameAs(cached);
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(0, 2, 0));
+    }
+
+    @Test
+    @DisplayName("풀을 닫으면 idle 커넥션의 캐시된 statement 도 닫힘")
+    public void t006() throws SQLException {
+        newPool(8, 0);
+
+        PreparedStatement cached;
+        try (Connection conn = pool.borrow()) {
+            cached = prepareAndGiveBack(conn, "SELECT 1");
+        }
+
+        pool.close();
+        assertThat(cached.isClosed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("반납할 때 fetchSize / maxRows / queryTimeout 을 처음 값으로 되돌림")
+    public void t007() throws SQLException {
+        newPool(8, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepareStatement("SELECT 1");
+            PreparedStatement target = pstmt.unwrap(PreparedStatement.class);
+            int fetchSize = target.getFetchSize();
+            pstmt.setFetchSize(fetchSize + 10);
+            pstmt.setMaxRows(1);
+            pstmt.setQueryTimeout(5);
+            pstmt.close();
+
+            PreparedStatement reused = conn.prepareStatement("SELECT 1");
+            assertThat(reused.unwrap(PreparedStatement.class)).isSameAs(target);
+            assertThat(reused.getFetchSize()).isEqualTo(fetchSize);
+            assertThat(reused.getMaxRows()).isZero();
+            assertThat(reused.getQueryTimeout()).isZero();
+            reused.close();
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(1, 1, 0));
+    }
+
+    @Test
+    @DisplayName("되돌릴 수 없는 설정을 바꾼 statement 는 반납할 때 닫고 캐시에서 뺌")
+    public void t008() throws SQLException {
+        newPool(8, 0);
+
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepareStatement("SELECT 1");
+            PreparedStatement target = pstmt.unwrap(PreparedStatement.class);
+            pstmt.setMaxFieldSize(16);
+            pstmt.close();
+
+            assertThat(target.isClosed()).isTrue();
+            assertThat(prepareAndGiveBack(conn, "SELECT 1")).isNotSameAs(target);
+        }
+
+        assertThat(pool.getStatementCacheStats()).isEqualTo(new StatementCacheStats(0, 2, 0));
+    }
+}